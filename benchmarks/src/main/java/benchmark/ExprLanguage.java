@@ -0,0 +1,185 @@
+package benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/* 生成用于性能测试的表达式语言：12层优先级的运算符、50个关键字语句、函数调用，以及任意规模的程序代码 */
+public class ExprLanguage {
+
+    static final String[] KEYWORDS = {
+            "abort", "accept", "assume", "await", "backup", "check", "commit", "connect", "declare", "defer",
+            "delete", "emit", "ensure", "expect", "export", "fetch", "flush", "freeze", "grant", "guard",
+            "hide", "import", "insert", "invoke", "join", "keep", "launch", "listen", "lock", "merge",
+            "notify", "observe", "open", "pause", "publish", "push", "queue", "raise", "record", "release",
+            "reset", "resume", "retain", "revoke", "schedule", "seal", "signal", "spawn", "store", "yield"
+    };
+
+    //按优先级从低到高排列，每个运算符后面是生成四元式时使用的名字
+    static final String[][][] LEVELS = {
+            {{"||", "or"}},
+            {{"&&", "and"}},
+            {{"|", "bitor"}},
+            {{"^", "xor"}},
+            {{"&", "bitand"}},
+            {{"==", "eq"}, {"!=", "ne"}},
+            {{"<", "lt"}, {"<=", "le"}, {">", "gt"}, {">=", "ge"}},
+            {{"<<", "shl"}, {">>", "shr"}},
+            {{"+", "add"}, {"-", "sub"}},
+            {{"*", "mul"}, {"/", "div"}, {"%", "mod"}}
+    };
+
+    private static String escape(String str) {
+        return str.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static void item(PrintWriter out, String production, String[] movements, String[] afterGenerations) {
+        out.println("        <item>");
+        out.println("            <production>" + escape(production) + "</production>");
+        if (movements.length > 0) {
+            out.println("            <movements>");
+            for (String movement : movements) {
+                out.println("                <item>" + movement + "</item>");
+            }
+            out.println("            </movements>");
+        }
+        if (afterGenerations.length > 0) {
+            out.println("            <after-generations>");
+            for (String generation : afterGenerations) {
+                out.println("                <item>" + generation + "</item>");
+            }
+            out.println("            </after-generations>");
+        }
+        out.println("        </item>");
+    }
+
+    private static String[] of(String... strs) {
+        return strs;
+    }
+
+    public static void writeGrammar(Writer writer) {
+        PrintWriter out = new PrintWriter(writer);
+        out.println("<pldl>");
+        out.println("    <!--由 benchmark.ExprLanguage 生成，请勿手工修改-->");
+        out.println("    <cfgproductions>");
+        item(out, "Program -> Stmts", of("go($1)"), of());
+        item(out, "Stmts -> Stmts Stmt", of("go($1)", "go($2)"), of());
+        item(out, "Stmts -> Stmt", of("go($1)"), of());
+        item(out, "Stmt -> id = E0 ;", of("go($3)"), of("gen(assign, $3(val), _, $1(val))"));
+        for (String keyword : KEYWORDS) {
+            item(out, "Stmt -> " + keyword + " ( E0 ) ;", of("go($3)"), of("gen(" + keyword + ", $3(val), _, _)"));
+        }
+        for (int i = 0; i < LEVELS.length; ++i) {
+            for (String[] operator : LEVELS[i]) {
+                item(out, "E" + i + " -> E" + i + " " + operator[0] + " E" + (i + 1),
+                        of("go($1)", "go($3)", "$$(val) = newTemp(val)"),
+                        of("gen(" + operator[1] + ", $1(val), $3(val), $$(val))"));
+            }
+            item(out, "E" + i + " -> E" + (i + 1), of("go($1)", "$$(val) = $1(val)"), of());
+        }
+        int unary = LEVELS.length, primary = LEVELS.length + 1;
+        item(out, "E" + unary + " -> - E" + unary, of("go($2)", "$$(val) = newTemp(val)"), of("gen(neg, $2(val), _, $$(val))"));
+        item(out, "E" + unary + " -> ! E" + unary, of("go($2)", "$$(val) = newTemp(val)"), of("gen(not, $2(val), _, $$(val))"));
+        item(out, "E" + unary + " -> E" + primary, of("go($1)", "$$(val) = $1(val)"), of());
+        item(out, "E" + primary + " -> ( E0 )", of("go($2)", "$$(val) = $2(val)"), of());
+        item(out, "E" + primary + " -> id ( E0 )", of("go($3)", "$$(val) = newTemp(val)"), of("gen(call, $1(val), $3(val), $$(val))"));
+        item(out, "E" + primary + " -> id", of("$$(val) = $1(val)"), of());
+        item(out, "E" + primary + " -> num", of("$$(val) = $1(val)"), of());
+        out.println("    </cfgproductions>");
+        out.println("    <terminators>");
+        out.println("        <item>");
+        out.println("            <name>id</name>");
+        out.println("            <regex>[_a-zA-Z][_a-zA-Z0-9]*</regex>");
+        out.println("        </item>");
+        out.println("        <item>");
+        out.println("            <name>num</name>");
+        out.println("            <regex>[1-9][0-9]*|0</regex>");
+        out.println("        </item>");
+        out.println("    </terminators>");
+        out.println("    <comments>");
+        out.println("        <item>");
+        out.println("            <name>comment</name>");
+        out.println("            <regex>/\\*([^\\*]|(\\*)*[^\\*/])*(\\*)*\\*/</regex>");
+        out.println("        </item>");
+        out.println("    </comments>");
+        out.println("</pldl>");
+        out.flush();
+    }
+
+    /* 生成大约 tokenCount 个词法单元的程序代码，相同的参数总是生成相同的代码 */
+    public static String generateProgram(int tokenCount, long seed) {
+        Random random = new Random(seed);
+        StringBuilder result = new StringBuilder();
+        int[] tokens = {0};
+        while (tokens[0] < tokenCount) {
+            if (random.nextInt(4) == 0) {
+                result.append(KEYWORDS[random.nextInt(KEYWORDS.length)]).append(" ( ");
+                expression(result, random, 3, tokens);
+                result.append(" ) ;\n");
+                tokens[0] += 4;
+            }
+            else {
+                result.append('v').append(random.nextInt(100)).append(" = ");
+                expression(result, random, 3, tokens);
+                result.append(" ;\n");
+                tokens[0] += 3;
+            }
+        }
+        return result.toString();
+    }
+
+    private static void expression(StringBuilder result, Random random, int depth, int[] tokens) {
+        int operands = 1 + random.nextInt(4);
+        for (int i = 0; i < operands; ++i) {
+            if (i > 0) {
+                String[][] level = LEVELS[random.nextInt(LEVELS.length)];
+                result.append(' ').append(level[random.nextInt(level.length)][0]).append(' ');
+                ++tokens[0];
+            }
+            int kind = depth > 0 ? random.nextInt(6) : random.nextInt(3);
+            switch (kind) {
+                case 0:
+                case 1:
+                    result.append('v').append(random.nextInt(100));
+                    ++tokens[0];
+                    break;
+                case 2:
+                    result.append(random.nextInt(1000));
+                    ++tokens[0];
+                    break;
+                case 3:
+                    result.append(random.nextBoolean() ? "- " : "! ");
+                    ++tokens[0];
+                    expression(result, random, 0, tokens);
+                    break;
+                case 4:
+                    result.append("( ");
+                    expression(result, random, depth - 1, tokens);
+                    result.append(" )");
+                    tokens[0] += 2;
+                    break;
+                default:
+                    result.append('f').append(random.nextInt(10)).append(" ( ");
+                    expression(result, random, depth - 1, tokens);
+                    result.append(" )");
+                    tokens[0] += 3;
+                    break;
+            }
+        }
+    }
+
+    /* 重新生成 sample/expr 下的文法文件和示例代码，参数为 sample 目录 */
+    public static void main(String[] args) throws IOException {
+        File sampleDir = new File(args.length > 0 ? args[0] : "../sample");
+        File xmlDir = new File(sampleDir, "expr/xml"), testDir = new File(sampleDir, "expr/test");
+        if (!xmlDir.isDirectory() && !xmlDir.mkdirs() || !testDir.isDirectory() && !testDir.mkdirs()) {
+            throw new IOException("无法创建目录 " + xmlDir + " 或 " + testDir);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(xmlDir, "expr.xml")), StandardCharsets.UTF_8)) {
+            writeGrammar(writer);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(testDir, "test.txt")), StandardCharsets.UTF_8)) {
+            writer.write(generateProgram(200, 1));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import exception.PLDLAnalysisException;
+import exception.PLDLParsingException;
+import lexer.Lexer;
+import org.dom4j.DocumentException;
+import parser.FlatAnalysisTree;
+import parser.CFG;
+import symbol.TokenBuffer;
+import util.CompiledLanguage;
+import util.PreParse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/* 测试用的语言定义位于 sample 目录下，目录位置由 lyron.sample 指定，默认是 ../sample */
+public class Fixtures {
+
+    public static final Set<Character> EMPTY_CHARS = new HashSet<>(Arrays.asList(' ', '\t', '\n', '\r', '\f'));
+
+    private static File getSampleFile(String language) {
+        File sampleDir = new File(System.getProperty("lyron.sample", "../sample"));
+        return new File(sampleDir, language + "/xml/" + language + ".xml");
+    }
+
+    public static PreParse preParse(String language) throws IOException, DocumentException, PLDLParsingException, PLDLAnalysisException {
+        try (InputStream inputStream = new FileInputStream(getSampleFile(language))) {
+            return new PreParse(inputStream, "Program");
+        }
+    }
+
+    public static CompiledLanguage load(String language, int tableMode) throws IOException, DocumentException, PLDLParsingException, PLDLAnalysisException {
+        PreParse preParse = preParse(language);
+        Lexer lexer = new Lexer(preParse.getTerminatorRegexes(), preParse.getBannedChars(), preParse.getKeywords(),
+                preParse.getComments());
+        CFG cfg = preParse.getCFG();
+        cfg.setTableMode(tableMode);
+        return new CompiledLanguage(lexer, cfg, cfg.getTable(), preParse.getTranslator(), preParse.getGenerator(), preParse.getAttributes());
+    }
+
+    /* 生成大约 tokenCount 个词法单元的代码 */
+    public static String input(String language, int tokenCount) {
+        if (language.equals("expr")) {
+            return ExprLanguage.generateProgram(tokenCount, 1);
+        }
+        Random random = new Random(1);
+        StringBuilder result = new StringBuilder();
+        result.append(random.nextInt(100));
+        for (int i = 1; i < tokenCount; i += 2) {
+            result.append(random.nextBoolean() ? " + " : " * ").append(random.nextInt(100));
+            if (i % 40 == 39) {
+                result.append('\n');
+            }
+        }
+        return result.toString();
+    }
+
+    public static TokenBuffer tokens(CompiledLanguage language, String input) throws PLDLAnalysisException, PLDLParsingException {
+        return language.getLexer().analysis(input, EMPTY_CHARS);
+    }
+
+    public static FlatAnalysisTree parse(CompiledLanguage language, String input) throws PLDLAnalysisException, PLDLParsingException {
+        return language.getTable().getFlatAnalysisTree(tokens(language, input));
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import generator.ResultTuple4;
+import org.openjdk.jmh.annotations.*;
+import parser.FlatAnalysisTree;
+import parser.CFG;
+import translator.MovementContext;
+import util.CompiledLanguage;
+
+import java.util.concurrent.TimeUnit;
+
+/* 四元式生成遍历：Generator.doTreesMovements，每次操作前重新构建并注释分析树 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"calc", "expr"})
+    public String language;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private CompiledLanguage compiledLanguage;
+
+    private String input;
+
+    private FlatAnalysisTree tree;
+
+    @Setup
+    public void setup() throws Exception {
+        compiledLanguage = Fixtures.load(language, CFG.LR1);
+        input = Fixtures.input(language, size);
+    }
+
+    @Setup(Level.Invocation)
+    public void translate() throws Exception {
+        tree = Fixtures.parse(compiledLanguage, input);
+        compiledLanguage.getTranslator().doTreesMovements(tree, new MovementContext());
+    }
+
+    @Benchmark
+    public ResultTuple4 doTreesMovements() throws Exception {
+        ResultTuple4 rt4 = new ResultTuple4();
+        compiledLanguage.getGenerator().doTreesMovements(tree, rt4);
+        return rt4;
+    }
+}
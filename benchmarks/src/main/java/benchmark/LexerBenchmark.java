@@ -0,0 +1,39 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import parser.CFG;
+import symbol.TokenBuffer;
+import util.CompiledLanguage;
+
+import java.util.concurrent.TimeUnit;
+
+/* 词法分析吞吐量：Lexer.analysis，每次操作分析整个输入 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"calc", "expr"})
+    public String language;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private CompiledLanguage compiledLanguage;
+
+    private String input;
+
+    @Setup
+    public void setup() throws Exception {
+        compiledLanguage = Fixtures.load(language, CFG.LR1);
+        input = Fixtures.input(language, size);
+    }
+
+    @Benchmark
+    public TokenBuffer analysis() throws Exception {
+        return compiledLanguage.getLexer().analysis(input, Fixtures.EMPTY_CHARS);
+    }
+}
@@ -0,0 +1,37 @@
+package benchmark;
+
+import lexer.Lexer;
+import org.openjdk.jmh.annotations.*;
+import util.PreParse;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/* 词法分析器构建：NFA.toDFA、DFA.simplify 以及 CompiledDFA，keywordTable 为false时关键字也放入DFA */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBuildBenchmark {
+
+    @Param({"calc", "expr", "c"})
+    public String language;
+
+    @Param({"true", "false"})
+    public boolean keywordTable;
+
+    private PreParse preParse;
+
+    @Setup
+    public void setup() throws Exception {
+        preParse = Fixtures.preParse(language);
+    }
+
+    @Benchmark
+    public Lexer buildLexer() throws Exception {
+        return new Lexer(preParse.getTerminatorRegexes(), preParse.getBannedChars(),
+                keywordTable ? preParse.getKeywords() : Collections.<String>emptySet(), preParse.getComments());
+    }
+}
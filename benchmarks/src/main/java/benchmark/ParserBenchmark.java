@@ -0,0 +1,40 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import parser.FlatAnalysisTree;
+import parser.CFG;
+import symbol.TokenBuffer;
+import util.CompiledLanguage;
+
+import java.util.concurrent.TimeUnit;
+
+/* 语法分析吞吐量：TransformTable.getFlatAnalysisTree，每次操作构建整棵分析树 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"calc", "expr"})
+    public String language;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private CompiledLanguage compiledLanguage;
+
+    private TokenBuffer tokens;
+
+    @Setup
+    public void setup() throws Exception {
+        compiledLanguage = Fixtures.load(language, CFG.LR1);
+        tokens = Fixtures.tokens(compiledLanguage, Fixtures.input(language, size));
+    }
+
+    @Benchmark
+    public FlatAnalysisTree getAnalysisTree() throws Exception {
+        return compiledLanguage.getTable().getFlatAnalysisTree(tokens);
+    }
+}
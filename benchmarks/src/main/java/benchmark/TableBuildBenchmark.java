@@ -0,0 +1,37 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import parser.CFG;
+import parser.TransformTable;
+
+import java.util.concurrent.TimeUnit;
+
+/* 语法分析表构建：CFG.getTable，每次都清除缓存的表 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableBuildBenchmark {
+
+    @Param({"calc", "expr"})
+    public String language;
+
+    @Param({"lr1", "lalr1"})
+    public String mode;
+
+    private CFG cfg;
+
+    @Setup
+    public void setup() throws Exception {
+        cfg = Fixtures.preParse(language).getCFG();
+        cfg.setTableMode(mode.equals("lalr1") ? CFG.LALR1 : CFG.LR1);
+    }
+
+    @Benchmark
+    public TransformTable buildTable() throws Exception {
+        cfg.invalidateTable();
+        return cfg.getTable();
+    }
+}
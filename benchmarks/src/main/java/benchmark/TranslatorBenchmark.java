@@ -0,0 +1,48 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import parser.FlatAnalysisTree;
+import parser.CFG;
+import translator.MovementContext;
+import util.CompiledLanguage;
+
+import java.util.concurrent.TimeUnit;
+
+/* 语义动作遍历：Translator.doTreesMovements，每次操作前重新构建分析树 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslatorBenchmark {
+
+    @Param({"calc", "expr"})
+    public String language;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private CompiledLanguage compiledLanguage;
+
+    private String input;
+
+    private FlatAnalysisTree tree;
+
+    @Setup
+    public void setup() throws Exception {
+        compiledLanguage = Fixtures.load(language, CFG.LR1);
+        input = Fixtures.input(language, size);
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() throws Exception {
+        tree = Fixtures.parse(compiledLanguage, input);
+    }
+
+    @Benchmark
+    public FlatAnalysisTree doTreesMovements() throws Exception {
+        compiledLanguage.getTranslator().doTreesMovements(tree, new MovementContext());
+        return tree;
+    }
+}
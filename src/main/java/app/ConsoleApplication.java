@@ -2,27 +2,32 @@ package app;
 
 import exception.PLDLAnalysisException;
 import exception.PLDLParsingException;
-import generator.Generator;
+import exception.PLDLParsingWarning;
+import generator.BinaryTuple4Sink;
+import generator.FileTuple4Sink;
 import generator.ResultTuple4;
+import generator.Tuple4Sink;
 import lexer.Lexer;
 import org.dom4j.DocumentException;
-import parser.AnalysisTree;
+import parser.FlatAnalysisTree;
 import parser.CFG;
 import parser.TransformTable;
-import symbol.Symbol;
-import translator.Translator;
+import translator.MovementContext;
+import util.CompiledLanguage;
+import util.LanguageArchive;
 import util.PreParse;
 
 import java.io.*;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class ConsoleApplication {
 
-    private PreParse preParse = null;
-    private Lexer lexer = null;
-    private CFG cfg = null;
-    private TransformTable table = null;
+    private CompiledLanguage language = null;
     private Set<Character> emptyChars = null;
 
     public ResultTuple4 getResults() {
@@ -32,80 +37,208 @@ public class ConsoleApplication {
     private ResultTuple4 rt4 = null;
 
     public void LLBegin(InputStream xmlStream) throws PLDLParsingException, PLDLAnalysisException, DocumentException {
-        System.out.println("XML文件解析中...");
-        preParse = new PreParse(xmlStream, "Program");
-        System.out.println("XML文件解析成功。");
-
-        System.out.println("正在构建词法分析器...");
-        lexer = new Lexer(preParse.getTerminatorRegexes(), preParse.getBannedStrs());
         emptyChars = new HashSet<>();
         emptyChars.add(' ');
         emptyChars.add('\t');
         emptyChars.add('\n');
         emptyChars.add('\r');
         emptyChars.add('\f');
+
+        byte[] xmlBytes;
+        try {
+            xmlBytes = readAllBytes(xmlStream);
+        } catch (IOException e) {
+            throw new DocumentException(e);
+        }
+        int tableMode = "lalr".equalsIgnoreCase(System.getProperty("lyron.table")) ? CFG.LALR1 : CFG.LR1;
+        //lyron.keywords 设为 dfa 时关键字和其它终结符一样放入DFA，默认用散列表识别
+        boolean keywordTable = !"dfa".equalsIgnoreCase(System.getProperty("lyron.keywords"));
+        byte[] sourceHash = LanguageArchive.getSourceHash(xmlBytes, tableMode, keywordTable);
+        File archiveFile = getArchiveFile(sourceHash);
+        language = null;
+        if (archiveFile != null && archiveFile.isFile()) {
+            System.out.println("正在加载编译产物...");
+            long begin = System.currentTimeMillis();
+            try {
+                language = LanguageArchive.read(archiveFile, sourceHash);
+            } catch (IOException | PLDLParsingException | PLDLAnalysisException e) {
+                PLDLParsingWarning.setLog("编译产物 " + archiveFile + " 无法读取，将重新解析XML文件：" + e.getMessage());
+            }
+            if (language != null) {
+                System.out.println("编译产物加载成功，用时 " + (System.currentTimeMillis() - begin) + " 毫秒。");
+                language.getTranslator().checkMovementsMap();
+                System.out.println("特定语言类型的内部编译器架构形成。");
+                return;
+            }
+        }
+
+        System.out.println("XML文件解析中...");
+        long begin = System.currentTimeMillis();
+        PreParse preParse = new PreParse(new ByteArrayInputStream(xmlBytes), "Program");
+        System.out.println("XML文件解析成功，用时 " + (System.currentTimeMillis() - begin) + " 毫秒。");
+        System.out.println("语义动作：" + preParse.getTranslator().getCFG().getTableReport());
+        System.out.println("四元式生成动作：" + preParse.getGenerator().getCFG().getTableReport());
+
+        System.out.println("正在构建词法分析器...");
+        Lexer lexer = new Lexer(preParse.getTerminatorRegexes(), preParse.getBannedChars(),
+                keywordTable ? preParse.getKeywords() : Collections.<String>emptySet(), preParse.getComments());
         System.out.println("词法分析器构建成功。");
 
         System.out.println("正在构建语法分析器...");
-        cfg = preParse.getCFG();
-        table = cfg.getTable();
-        System.out.println("基于LR（1）分析的语法分析器构建成功。");
+        CFG cfg = preParse.getCFG();
+        cfg.setTableMode(tableMode);
+        TransformTable table = cfg.getTable();
+        if (cfg.getTableMode() == CFG.LALR1) {
+            System.out.println("基于LALR（1）分析的语法分析器构建成功。");
+        }
+        else {
+            System.out.println("基于LR（1）分析的语法分析器构建成功。");
+        }
+        language = new CompiledLanguage(lexer, cfg, table, preParse.getTranslator(), preParse.getGenerator(), preParse.getAttributes());
+
+        if (archiveFile != null) {
+            try {
+                LanguageArchive.write(language, sourceHash, archiveFile);
+                System.out.println("编译产物已保存到 " + archiveFile + "。");
+            } catch (IOException e) {
+                PLDLParsingWarning.setLog("编译产物 " + archiveFile + " 无法保存：" + e.getMessage());
+            }
+        }
 
+        language.getTranslator().checkMovementsMap();
         System.out.println("特定语言类型的内部编译器架构形成。");
     }
 
-    public void LLParse(InputStream codeStream)
-            throws PLDLAnalysisException, PLDLParsingException, IOException {
-
-        System.out.println("正在读取代码文件...");
-        int size = codeStream.available();
-        byte[] buffer = new byte[size];
-        int readin = codeStream.read(buffer);
-        if (readin != size){
-            throw new IOException("代码文件读取大小与文件大小不一致。");
+    /* 编译产物目录由 lyron.cache 指定，默认是用户目录下的 .cache/lyron，不放在所有用户共享的临时目录中；设为 off 时不使用 */
+    private File getArchiveFile(byte[] sourceHash) {
+        String cacheDir = System.getProperty("lyron.cache");
+        if ("off".equalsIgnoreCase(cacheDir)) {
+            return null;
         }
-        codeStream.close();
-        String codestr = new String(buffer, StandardCharsets.UTF_8);
+        File directory = cacheDir != null ? new File(cacheDir) : new File(System.getProperty("user.home"), ".cache" + File.separator + "lyron");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            PLDLParsingWarning.setLog("编译产物目录 " + directory + " 无法创建，将不保存编译产物。");
+            return null;
+        }
+        return LanguageArchive.getArchiveFile(directory, sourceHash);
+    }
 
-        System.out.println("正在对代码进行词法分析...");
-        List<Symbol> symbols = lexer.analysis(codestr, emptyChars);
-        symbols = cfg.revertToStdAbstractSymbols(symbols);
-        symbols = cfg.eraseComments(symbols);
+    private static byte[] readAllBytes(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int readin;
+        while ((readin = inputStream.read(buffer)) > 0) {
+            result.write(buffer, 0, readin);
+        }
+        inputStream.close();
+        return result.toByteArray();
+    }
 
-        System.out.println("正在对代码进行语法分析构建分析树...");
-        AnalysisTree tree = table.getAnalysisTree(symbols);
+    public void LLParse(InputStream codeStream)
+            throws PLDLAnalysisException, PLDLParsingException, IOException {
         rt4 = new ResultTuple4();
+        LLParse(codeStream, rt4);
+    }
+
+    /* 四元式在生成的同时交给sink，不在内存中保存 */
+    public void LLParse(InputStream codeStream, Tuple4Sink sink)
+            throws PLDLAnalysisException, PLDLParsingException, IOException {
+
+        System.out.println("正在对代码进行词法分析和语法分析构建分析树...");
+        FlatAnalysisTree tree;
+        try (Reader reader = new InputStreamReader(codeStream, StandardCharsets.UTF_8)) {
+            tree = language.parse(reader, emptyChars);
+        }
 
         System.out.println("正在对分析树进行语义赋值生成注释分析树...");
-        Translator translator = preParse.getTranslator();
-        translator.checkMovementsMap();
-        translator.doTreesMovements(tree);
+        language.getTranslator().doTreesMovements(tree, new MovementContext());
 
         System.out.println("正在根据注释分析树生成四元式...");
-        Generator generator = preParse.getGenerator();
-        generator.doTreesMovements(tree, rt4);
+        language.getGenerator().doTreesMovements(tree, sink);
         System.out.println("生成四元式成功");
     }
 
-    public void LLEnd(OutputStream outputStream){
-        PrintStream backupStream = System.out;
-        System.setOut(new PrintStream(outputStream));
+    /* 四元式文件的格式由 lyron.format 指定，默认是每行一个四元式的文本，设为 binary 时使用 BinaryTuple4Sink 的二进制格式 */
+    private static boolean isBinaryFormat() {
+        return "binary".equalsIgnoreCase(System.getProperty("lyron.format"));
+    }
+
+    private static Tuple4Sink openSink(Path path) throws IOException {
+        return isBinaryFormat() ? new BinaryTuple4Sink(path) : new FileTuple4Sink(path);
+    }
+
+    /* 用同一个编译产物并行编译目录下的所有代码文件，每个文件的四元式保存为输出目录下的同名文件加 .out 后缀（二进制格式为 .lyq），
+       线程数由 lyron.threads 指定，默认为处理器个数 */
+    public void LLBatch(File codeDirectory, File outDirectory) throws IOException, InterruptedException {
+        File[] files = codeDirectory.listFiles();
+        if (files == null) {
+            throw new FileNotFoundException(codeDirectory.toString());
+        }
+        if (!outDirectory.isDirectory() && !outDirectory.mkdirs()) {
+            throw new IOException("输出目录 " + outDirectory + " 无法创建。");
+        }
+        List<File> codeFiles = new ArrayList<>();
+        for (File file : files) {
+            if (file.isFile()) {
+                codeFiles.add(file);
+            }
+        }
+        Collections.sort(codeFiles);
+
+        int threadCount = Integer.getInteger("lyron.threads", Runtime.getRuntime().availableProcessors());
+        System.out.println("正在使用 " + threadCount + " 个线程编译 " + codeFiles.size() + " 个代码文件...");
+        long begin = System.currentTimeMillis();
+        ExecutorService pool = Executors.newWorkStealingPool(threadCount);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (File codeFile : codeFiles) {
+            File outFile = new File(outDirectory, codeFile.getName() + (isBinaryFormat() ? ".lyq" : ".out"));
+            futures.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    try (Reader reader = new InputStreamReader(new FileInputStream(codeFile), StandardCharsets.UTF_8);
+                         Tuple4Sink sink = openSink(outFile.toPath())) {
+                        language.compile(reader, emptyChars, sink);
+                    }
+                    return null;
+                }
+            }));
+        }
+        int failedCount = 0;
+        for (int i = 0; i < futures.size(); ++i) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                ++failedCount;
+                System.err.println(codeFiles.get(i) + " 编译失败：" + e.getCause());
+            }
+        }
+        pool.shutdown();
+        System.out.println("编译完成，成功 " + (codeFiles.size() - failedCount) + " 个，失败 " + failedCount +
+                " 个，用时 " + (System.currentTimeMillis() - begin) + " 毫秒。");
+    }
 
-        System.out.println(rt4);
-        System.setOut(backupStream);
+    public void LLEnd(OutputStream outputStream) throws IOException {
+        try (FileTuple4Sink sink = new FileTuple4Sink(Channels.newChannel(outputStream))) {
+            rt4.writeTo(sink);
+        }
         System.out.println("生成完毕。");
     }
 
     public void LLMain(String[] args){
         String pldlFileName, codeFileName, outFileName;
         try {
-            if (args.length == 3) {
+            if (args.length == 4 && args[0].equals("-batch")) {
+                LLBegin(new FileInputStream(args[1]));
+                LLBatch(new File(args[2]), new File(args[3]));
+            } else if (args.length == 3) {
                 pldlFileName = args[0];
                 codeFileName = args[1];
                 outFileName = args[2];
                 LLBegin(new FileInputStream(pldlFileName));
-                LLParse(new FileInputStream(codeFileName));
-                LLEnd(new FileOutputStream(outFileName));
+                try (Tuple4Sink sink = openSink(Paths.get(outFileName))) {
+                    LLParse(new FileInputStream(codeFileName), sink);
+                }
+                System.out.println("生成完毕。");
             } else if (args.length == 0) {
                 System.out.println("请输入程序语言定义文件的路径：");
                 Scanner sc = new Scanner(System.in);
@@ -118,12 +251,16 @@ public class ConsoleApplication {
                 outFileName = sc.nextLine();
                 LLEnd(new FileOutputStream(outFileName));
             } else {
-                System.err.println("参数用法：第一个参数是程序语言定义文件，第二个参数是要解析的代码文件，第三个参数是四元式保存位置。");
+                System.err.println("参数用法：第一个参数是程序语言定义文件，第二个参数是要解析的代码文件，第三个参数是四元式保存位置；" +
+                        "或者 -batch 程序语言定义文件 代码文件目录 四元式保存目录。");
                 System.exit(-1);
             }
         } catch (IOException e) {
             System.err.println("文件无法打开或读取，请检查输入的路径。");
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            System.err.println("编译被中断。");
+            Thread.currentThread().interrupt();
         } catch (PLDLParsingException e) {
             System.err.println("程序语言定义存在问题，请检查文法定义。");
             e.printStackTrace();
@@ -1,20 +1,18 @@
 package exception;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class PLDLParsingWarning extends Throwable {
 
     private static final long serialVersionUID = -5121647494803023792L;
 
-    private static ArrayList<String> loggings = new ArrayList<>();
-
-    public static List<String> getLoggings() {
-        return loggings;
-    }
-
+    /* 警告统一在这里输出；需要保留警告的对象各自记录，这里不保存任何状态 */
     public static void setLog(String warning) {
         System.err.println("Warning: " + warning);
+    }
+
+    public static void setLog(List<String> loggings, String warning) {
+        setLog(warning);
         loggings.add(warning);
     }
 }
@@ -0,0 +1,115 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/* 直接在映射到内存的文件上读取 BinaryTuple4Sink 写出的四元式，字符串只在第一次用到时解码 */
+public class BinaryTuple4Reader {
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+
+    //每个块的位置，以及每个字符串内容的位置和字节数
+    private final int[] blockPositions, stringPositions, stringLengths;
+
+    private final String[] strings;
+
+    public BinaryTuple4Reader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("四元式文件 " + path + " 超过2GB，无法映射到内存。");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int footer = buffer.limit() - BinaryTuple4Sink.FOOTER_SIZE;
+        if (footer < BinaryTuple4Sink.HEADER_SIZE || buffer.getInt(0) != BinaryTuple4Sink.MAGIC
+                || buffer.getInt(4) != BinaryTuple4Sink.VERSION || buffer.getInt(footer + 24) != BinaryTuple4Sink.MAGIC) {
+            throw new IOException("四元式文件 " + path + " 格式不正确或不完整。");
+        }
+        int position = (int) buffer.getLong(footer);
+        int blocksPosition = (int) buffer.getLong(footer + 8);
+        size = (int) buffer.getLong(footer + 16);
+
+        int stringCount = buffer.getInt(position);
+        position += 4;
+        stringPositions = new int[stringCount];
+        stringLengths = new int[stringCount];
+        strings = new String[stringCount];
+        for (int i = 0; i < stringCount; ++i) {
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(position++);
+                length |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            stringPositions[i] = position;
+            stringLengths[i] = length;
+            position += length;
+        }
+
+        blockPositions = new int[buffer.getInt(blocksPosition)];
+        for (int i = 0; i < blockPositions.length; ++i) {
+            blockPositions[i] = (int) buffer.getLong(blocksPosition + 4 + 8 * i);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* column 为0时是运算符，1到3是操作数，返回字符串编号，-1表示null */
+    public int getId(int index, int column) {
+        int blockPosition = blockPositions[index / BinaryTuple4Sink.BLOCK_SIZE];
+        int count = buffer.getInt(blockPosition), width = buffer.get(blockPosition + 4);
+        int position = blockPosition + BinaryTuple4Sink.BLOCK_HEADER_SIZE + (column * count + index % BinaryTuple4Sink.BLOCK_SIZE) * width;
+        switch (width) {
+            case 1:
+                return (buffer.get(position) & 0xff) - 1;
+            case 2:
+                return (buffer.getShort(position) & 0xffff) - 1;
+            default:
+                return buffer.getInt(position) - 1;
+        }
+    }
+
+    public int getStringCount() {
+        return strings.length;
+    }
+
+    public String getString(int id) {
+        if (id < 0) {
+            return null;
+        }
+        String result = strings[id];
+        if (result == null) {
+            byte[] bytes = new byte[stringLengths[id]];
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(stringPositions[id]);
+            duplicate.get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = result;
+        }
+        return result;
+    }
+
+    public String get(int index, int column) {
+        return getString(getId(index, column));
+    }
+
+    public Tuple4 get(int index) {
+        return new Tuple4(get(index, 0), get(index, 1), get(index, 2), get(index, 3));
+    }
+
+    public void writeTo(Tuple4Sink sink) throws IOException {
+        for (int i = 0; i < size; ++i) {
+            sink.append(get(i, 0), get(i, 1), get(i, 2), get(i, 3));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    四元式的二进制格式，所有整数都是大端序：
+        文件头：MAGIC、VERSION
+        若干个块：每块最多 BLOCK_SIZE 个四元式，依次是四元式个数、编号宽度和四列字符串编号，编号宽度是块内最大编号所需的字节数（1、2或4）
+        字符串表：字符串个数，每个字符串的UTF-8字节数（变长整数，每字节低7位有效，最高位为1表示后面还有）和内容
+        块索引：块个数，每个块在文件中的位置（long）
+        文件尾：字符串表的位置（long）、块索引的位置（long）、四元式个数（long）、MAGIC
+    运算符和操作数共用一个字符串表，写入的编号是字符串表下标加1，0表示null。除最后一块外每块都是 BLOCK_SIZE 个四元式，
+    因此第i个四元式在第 i / BLOCK_SIZE 块中
+ */
+public class BinaryTuple4Sink implements Tuple4Sink {
+
+    public static final int MAGIC = 0x4c595134;
+
+    public static final int VERSION = 1;
+
+    public static final int BLOCK_SIZE = 4096;
+
+    static final int HEADER_SIZE = 8, BLOCK_HEADER_SIZE = 5, FOOTER_SIZE = 28;
+
+    private final FileChannel channel;
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + 16 * BLOCK_SIZE);
+
+    private final int[][] columns = new int[4][BLOCK_SIZE];
+
+    private final List<Long> blockPositions = new ArrayList<>();
+
+    private int blockCount = 0;
+
+    private long tuple4Count = 0;
+
+    public BinaryTuple4Sink(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        write(header);
+    }
+
+    private int intern(String str) {
+        if (str == null) {
+            return 0;
+        }
+        Integer id = stringIds.get(str);
+        if (id == null) {
+            strings.add(str);
+            id = strings.size();
+            stringIds.put(str, id);
+        }
+        return id;
+    }
+
+    @Override
+    public void append(String s1, String s2, String s3, String s4) throws IOException {
+        columns[0][blockCount] = intern(s1);
+        columns[1][blockCount] = intern(s2);
+        columns[2][blockCount] = intern(s3);
+        columns[3][blockCount] = intern(s4);
+        ++tuple4Count;
+        if (++blockCount == BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int max = 0;
+        for (int[] column : columns) {
+            for (int i = 0; i < blockCount; ++i) {
+                max = Math.max(max, column[i]);
+            }
+        }
+        int width = max < 1 << 8 ? 1 : max < 1 << 16 ? 2 : 4;
+        block.clear();
+        block.putInt(blockCount).put((byte) width);
+        for (int[] column : columns) {
+            for (int i = 0; i < blockCount; ++i) {
+                if (width == 1) {
+                    block.put((byte) column[i]);
+                }
+                else if (width == 2) {
+                    block.putShort((short) column[i]);
+                }
+                else {
+                    block.putInt(column[i]);
+                }
+            }
+        }
+        block.flip();
+        blockPositions.add(channel.position());
+        write(block);
+        blockCount = 0;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockCount > 0) {
+                writeBlock();
+            }
+            long stringsPosition = channel.position();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(strings.size());
+            for (String str : strings) {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 5 + bytes.length) {
+                    buffer.flip();
+                    write(buffer);
+                    if (buffer.capacity() < 5 + bytes.length) {
+                        buffer = ByteBuffer.allocate(5 + bytes.length);
+                    }
+                    buffer.clear();
+                }
+                int length = bytes.length;
+                while (length >= 0x80) {
+                    buffer.put((byte) (length & 0x7f | 0x80));
+                    length >>>= 7;
+                }
+                buffer.put((byte) length).put(bytes);
+            }
+            buffer.flip();
+            write(buffer);
+            long blocksPosition = channel.position();
+            buffer = ByteBuffer.allocate(4 + 8 * blockPositions.size() + FOOTER_SIZE);
+            buffer.putInt(blockPositions.size());
+            for (long position : blockPositions) {
+                buffer.putLong(position);
+            }
+            buffer.putLong(stringsPosition).putLong(blocksPosition).putLong(tuple4Count).putInt(MAGIC).flip();
+            write(buffer);
+        } finally {
+            channel.close();
+        }
+    }
+}
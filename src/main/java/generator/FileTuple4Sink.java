@@ -0,0 +1,98 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/* 把四元式按行以UTF-8写入文件，最后以一个空行结束。缓冲区写满时才写入通道，内存占用与四元式的个数无关 */
+public class FileTuple4Sink implements Tuple4Sink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+
+    public FileTuple4Sink(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public FileTuple4Sink(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void append(String s1, String s2, String s3, String s4) throws IOException {
+        put(s1);
+        put(",");
+        put(s2);
+        put(",");
+        put(s3);
+        put(",");
+        put(s4);
+        put("\n");
+    }
+
+    private void put(String str) throws IOException {
+        if (str == null) {
+            str = "null";
+        }
+        int offset = 0;
+        while (offset < str.length()) {
+            if (!chars.hasRemaining()) {
+                flush(false);
+            }
+            int length = Math.min(chars.remaining(), str.length() - offset);
+            chars.put(str, offset, offset + length);
+            offset += length;
+        }
+    }
+
+    private void flush(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            writeBytes();
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+        //代理对的前一半留到下一次编码
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            //与原先 println 整个结果的输出相同，最后多一个换行
+            put(System.lineSeparator());
+            flush(true);
+            encoder.flush(bytes);
+            writeBytes();
+        } finally {
+            channel.close();
+        }
+    }
+}
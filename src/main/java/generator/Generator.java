@@ -5,16 +5,20 @@ import exception.PLDLParsingException;
 import lexer.Lexer;
 import lexer.NFA;
 import lexer.SimpleREApply;
-import parser.AnalysisNode;
+import parser.AnalysisCursor;
 import parser.AnalysisTree;
+import parser.FlatAnalysisTree;
 import parser.CFG;
 import parser.CFGProduction;
-import symbol.AbstractSymbol;
-import symbol.Symbol;
+import symbol.Attributes;
 import symbol.SymbolPool;
-import symbol.Terminator;
+import symbol.TokenBuffer;
+import translator.Instruction;
 import translator.MovementCreator;
+import translator.MovementProduction;
+import translator.Operand;
 
+import java.io.IOException;
 import java.util.*;
 
 public class Generator implements MovementCreator {
@@ -26,22 +30,17 @@ public class Generator implements MovementCreator {
     private Map<CFGProduction, List<AnalysisTree>> beforeMovementsMap = new HashMap<>();
     private Map<CFGProduction, List<AnalysisTree>> afterMovementsMap = new HashMap<>();
 
+    //动作树在加入时就解析为指令，分析树节点的产生式与这里的键是同一个对象
+    //下标0是子节点遍历之前执行的指令，下标1是之后执行的指令
+    private Map<CFGProduction, Instruction[][]> programs = new IdentityHashMap<>();
+
     private Lexer lexer;
 
-    public Generator() throws PLDLParsingException, PLDLAnalysisException {
-        List<Map.Entry<String, NFA>> terminatorsNFA = new ArrayList<>();
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$$", NFA.fastNFA("$$")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$", NFA.fastNFA("$")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("(", NFA.fastNFA("(")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>(")", NFA.fastNFA(")")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>(",", NFA.fastNFA(",")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("print", NFA.fastNFA("print")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("gen", NFA.fastNFA("gen")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("_", NFA.fastNFA("_")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("val", new SimpleREApply("[a-zA-Z][a-zA-Z0-9]*").getNFA()));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("num", new SimpleREApply("[1-9][0-9]*|0").getNFA()));
-
-        lexer = new Lexer(terminatorsNFA, null);
+    //动作语句中的属性名登记在所属语言的属性表中
+    private final Attributes attributes;
+
+    public Generator(Attributes attributes) throws PLDLParsingException, PLDLAnalysisException {
+        this.attributes = attributes;
         emptyChars.add(' ');
         emptyChars.add('\t');
         emptyChars.add('\n');
@@ -50,12 +49,36 @@ public class Generator implements MovementCreator {
         setCFG();
     }
 
+    /* 动作语句的词法分析器只在需要解析动作语句时构建，从编译产物加载时不需要 */
+    private Lexer getLexer() throws PLDLParsingException, PLDLAnalysisException {
+        if (lexer == null) {
+            List<Map.Entry<String, NFA>> terminatorsNFA = new ArrayList<>();
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$$", NFA.fastNFA("$$")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$", NFA.fastNFA("$")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("(", NFA.fastNFA("(")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>(")", NFA.fastNFA(")")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>(",", NFA.fastNFA(",")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("print", NFA.fastNFA("print")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("gen", NFA.fastNFA("gen")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("_", NFA.fastNFA("_")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("val", new SimpleREApply("[a-zA-Z][a-zA-Z0-9]*").getNFA()));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("num", new SimpleREApply("[1-9][0-9]*|0").getNFA()));
+            lexer = new Lexer(terminatorsNFA, null);
+            lexer.setSymbolPool(cfg.getSymbolPool());
+        }
+        return lexer;
+    }
+
     public AnalysisTree getMovementTree(String str) throws PLDLAnalysisException, PLDLParsingException {
-        List<Symbol> symbols = lexer.analysis(str, emptyChars);
-        return cfg.getTable().getAnalysisTree(symbols);
+        TokenBuffer tokens = getLexer().analysis(str, emptyChars);
+        return cfg.getTable().getAnalysisTree(tokens);
     }
 
 
+    public CFG getCFG() {
+        return cfg;
+    }
+
     protected void setCFG() {
         Set<String> terminatorStrs = new HashSet<>(Arrays.asList("$$", "$", "(", ")", ",", "val", "num", "_", "print", "gen", "checkvar"));
         Set<String> unterminatorStrs = new HashSet<>(Arrays.asList("F", "G", "H", "Var", "E", "L", "L_"));
@@ -64,31 +87,25 @@ public class Generator implements MovementCreator {
             pool.initTerminatorString(terminatorStrs);
             pool.initUnterminatorString(unterminatorStrs);
             List<CFGProduction> res = new ArrayList<>(Arrays.asList(
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("G -> Var", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("G -> Var", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            movementTree.getValue().setProperties(new HashMap<>());
-                            for (String str : movementTree.getChildren().get(0).getValue().getProperties().keySet()) {
-                                movementTree.getValue().getProperties().put(str, movementTree.getChildren().get(0).getValue().getProperties().get(str));
-                            }
+                        public Object lower(Object[] children) {
+                            return children[0];
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("E -> print ( H )", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("E -> print ( H )", pool)) {
 
                         /* For Debug */
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            AnalysisNode rightTreeNode = (AnalysisNode) movementTree.getChildren().get(2).getValue().getProperties().get("rightTreeNode");
-                            Symbol rightTreeNodeValue = rightTreeNode.getValue();
-                            String name = (String) movementTree.getChildren().get(2).getValue().getProperties().get("name");
-                            System.out.println(rightTreeNodeValue.getProperties().get(name));
+                        public Object lower(Object[] children) {
+                            return Instruction.print((Operand) children[2]);
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("E -> gen ( val , L_ , L_ , L_ )", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("E -> gen ( val , L_ , L_ , L_ )", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
+                        public Object lower(Object[] children) {
                             /*
                                 0： gen
                                 1: (
@@ -101,96 +118,72 @@ public class Generator implements MovementCreator {
                                 8: L
                                 9: )
                              */
-                            String val1 = (String) movementTree.getChildren().get(2).getValue().getProperties().get("val");
-                            String val2 = (String) movementTree.getChildren().get(4).getValue().getProperties().get("val");
-                            String val3 = (String) movementTree.getChildren().get(6).getValue().getProperties().get("val");
-                            String val4 = (String) movementTree.getChildren().get(8).getValue().getProperties().get("val");
-                            resultCOMM.append(val1, val2, val3, val4);
+                            return Instruction.gen((String) children[2], (Operand) children[4], (Operand) children[6], (Operand) children[8]);
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("H -> Var ( val )", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("H -> Var ( val )", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            String name = (String) movementTree.getChildren().get(2).getValue().getProperties().get("val");
-                            AnalysisNode rightTreeNode = (AnalysisNode) movementTree.getChildren().get(0).getValue().getProperties().get("rightTreeNode");
-                            movementTree.getValue().addProperty("rightTreeNode", rightTreeNode);   //右树节点
-                            movementTree.getValue().addProperty("name", name);  //索引名
+                        public Object lower(Object[] children) {
+                            //右树节点和索引名
+                            return ((Operand) children[0]).withAttribute((String) children[2]);
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("Var -> $$", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("Var -> $$", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            //Var这个左树节点中存储的是右树节点
-                            movementTree.getValue().addProperty("rightTreeNode", analysisTree);
+                        public Object lower(Object[] children) {
+                            return Operand.self();
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("Var -> $ num", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("Var -> $ num", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) throws PLDLParsingException {
-                            int num = Integer.parseInt((String) movementTree.getChildren().get(1).getValue().getProperties().get("val"));
-                            --num;
-                            if (num < 0 || num >= analysisTree.getChildren().size()) {
-                                throw new PLDLParsingException("$后面的数字超出这条产生式右部元素的范围", null);
-                            }
-                            AnalysisNode rightTreeNode = analysisTree.getChildren().get(num);
-                            movementTree.getValue().addProperty("rightTreeNode", rightTreeNode);
+                        public Object lower(Object[] children) {
+                            return Operand.child(Integer.parseInt((String) children[1]) - 1);
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("Var -> val", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("Var -> val", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            String varname = (String) movementTree.getChildren().get(0).getValue().getProperties().get("val");
-                            AnalysisNode rightTreeNode;
-                            if (!analysisTree.getValue().getProperties().containsKey("var_" + varname)) {
-                                rightTreeNode = new AnalysisNode(new Terminator(null));
-                                rightTreeNode.getValue().addProperty("val", "var_" + varname);
-                                analysisTree.getValue().getProperties().put("var_" + varname, rightTreeNode);
-                            } else {
-                                rightTreeNode = (AnalysisNode) analysisTree.getValue().getProperties().get("var_" + varname);
-                            }
-                            movementTree.getValue().addProperty("rightTreeNode", rightTreeNode);
+                        public Object lower(Object[] children) {
+                            //变量保存在当前分析树节点的 var_变量名 属性中
+                            return Operand.variable((String) children[0]);
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("L -> H", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("L -> H", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            movementTree.getValue().setProperties(new HashMap<>());
-                            AnalysisNode HrightTreeNode = (AnalysisNode) movementTree.getChildren().get(0).getValue().getProperties().get("rightTreeNode");
-                            String Hname = (String) movementTree.getChildren().get(0).getValue().getProperties().get("name");
-                            movementTree.getValue().getProperties().put("val", HrightTreeNode.getValue().getProperties().get(Hname));
+                        public Object lower(Object[] children) {
+                            return children[0];
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> L", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> L", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            movementTree.getValue().addProperty("val", movementTree.getChildren().get(0).getValue().getProperties().get("val"));
+                        public Object lower(Object[] children) {
+                            return children[0];
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> _", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> _", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            movementTree.getValue().addProperty("val", "_");
+                        public Object lower(Object[] children) {
+                            return Operand.constant("_");
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> num", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> num", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            movementTree.getValue().addProperty("val", movementTree.getChildren().get(0).getValue().getProperties().get("val"));
+                        public Object lower(Object[] children) {
+                            return Operand.constant((String) children[0]);
                         }
                     },
-                    new GenerateProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> val", pool)) {
+                    new MovementProduction(CFGProduction.getCFGProductionFromCFGString("L_ -> val", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree, ResultTuple4 resultCOMM) {
-                            movementTree.getValue().addProperty("val", movementTree.getChildren().get(0).getValue().getProperties().get("val"));
+                        public Object lower(Object[] children) {
+                            return Operand.constant((String) children[0]);
                         }
                     }
             ));
@@ -201,44 +194,71 @@ public class Generator implements MovementCreator {
 
     }
 
-    public void doTreesMovements(AnalysisTree analysisTree, ResultTuple4 resultCOMM) throws PLDLParsingException, PLDLAnalysisException {
-        rr_doTreesMovements(analysisTree.getRoot(), resultCOMM);
-    }
-
-    private void rr_doTreesMovements(AnalysisNode analysisNode, ResultTuple4 resultCOMM) throws PLDLParsingException, PLDLAnalysisException {
-        doTreeMovement(beforeMovementsMap.get(analysisNode.getProduction()), analysisNode, resultCOMM);
-        if (analysisNode.getChildren() != null) {
-            for (AnalysisNode childNode : analysisNode.getChildren()) {
-                if (childNode.getValue().getAbstractSymbol().getType() != AbstractSymbol.TERMINATOR) {
-                    rr_doTreesMovements(childNode, resultCOMM);
+    /* 先序执行子节点遍历之前的指令，后序执行之后的指令，用栈代替递归。childStack 中是每层下一个要遍历的子节点 */
+    public void doTreesMovements(FlatAnalysisTree tree, Tuple4Sink resultCOMM) throws PLDLParsingException, PLDLAnalysisException, IOException {
+        AnalysisCursor cursor = tree.getCursor();
+        int[] nodeStack = new int[64];
+        Instruction[][][] programStack = new Instruction[64][][];
+        int[] childStack = new int[64];
+        int top = 0;
+        nodeStack[0] = tree.getRoot();
+        programStack[0] = programs.get(tree.getProduction(nodeStack[0]));
+        childStack[0] = tree.getFirstChild(nodeStack[0]);
+        doMovements(programStack[0][0], cursor, resultCOMM);
+        while (top >= 0) {
+            int childNode = childStack[top];
+            if (childNode >= 0) {
+                childStack[top] = tree.getNextSibling(childNode);
+                if (!tree.isLeaf(childNode)) {
+                    Instruction[][] childProgram = programs.get(tree.getProduction(childNode));
+                    cursor.moveTo(childNode);
+                    doMovements(childProgram[0], cursor, resultCOMM);
+                    if (++top == nodeStack.length) {
+                        nodeStack = Arrays.copyOf(nodeStack, top * 2);
+                        programStack = Arrays.copyOf(programStack, top * 2);
+                        childStack = Arrays.copyOf(childStack, top * 2);
+                    }
+                    nodeStack[top] = childNode;
+                    programStack[top] = childProgram;
+                    childStack[top] = tree.getFirstChild(childNode);
                 }
             }
+            else {
+                cursor.moveTo(nodeStack[top]);
+                doMovements(programStack[top][1], cursor, resultCOMM);
+                programStack[top--] = null;
+            }
         }
-        doTreeMovement(afterMovementsMap.get(analysisNode.getProduction()), analysisNode, resultCOMM);
     }
 
-    private void doTreeMovement(List<AnalysisTree> movementTrees, AnalysisNode analysisNode, ResultTuple4 resultCOMM) throws PLDLParsingException, PLDLAnalysisException {
-        for (AnalysisTree movementTree : movementTrees) {
-            rr_doTreeMovement(movementTree.getRoot(), analysisNode, resultCOMM);
+    private void doMovements(Instruction[] program, AnalysisCursor cursor, Tuple4Sink resultCOMM) throws PLDLParsingException, IOException {
+        for (Instruction instruction : program) {
+            Operand[] operands = instruction.getOperands();
+            switch (instruction.getCode()) {
+                case Instruction.PRINT:
+                    System.out.println(operands[0].getValue(cursor));
+                    break;
+                case Instruction.GEN:
+                    resultCOMM.append(instruction.getName(), (String) operands[0].getValue(cursor),
+                            (String) operands[1].getValue(cursor), (String) operands[2].getValue(cursor));
+                    break;
+            }
         }
     }
 
-    private void rr_doTreeMovement(AnalysisNode movementNode, AnalysisNode analysisNode, ResultTuple4 resultCOMM) throws PLDLParsingException, PLDLAnalysisException {
-        if (movementNode.getChildren() != null) {
-            for (AnalysisNode childNode : movementNode.getChildren()) {
-                if (childNode.getValue().getAbstractSymbol().getType() != AbstractSymbol.TERMINATOR) {
-                    rr_doTreeMovement(childNode, analysisNode, resultCOMM);
-                }
-            }
-        }
-        GenerateProduction GenerateProduction = (GenerateProduction) movementNode.getProduction();
-        GenerateProduction.doMovement(movementNode, analysisNode, resultCOMM);
+    public Map<CFGProduction, List<AnalysisTree>> getBeforeMovementsMap() {
+        return beforeMovementsMap;
+    }
+
+    public Map<CFGProduction, List<AnalysisTree>> getAfterMovementsMap() {
+        return afterMovementsMap;
     }
 
     public void addToMovementsMap(CFGProduction production,
                                   List<AnalysisTree> beforeTrees,
-                                  List<AnalysisTree> afterTrees) {
+                                  List<AnalysisTree> afterTrees) throws PLDLParsingException {
         beforeMovementsMap.put(production, beforeTrees);
         afterMovementsMap.put(production, afterTrees);
+        programs.put(production, new Instruction[][]{MovementProduction.lower(beforeTrees, attributes), MovementProduction.lower(afterTrees, attributes)});
     }
 }
@@ -1,9 +1,11 @@
 package generator;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ResultTuple4 {
+/* 在内存中保存全部四元式，用于需要先查看结果再决定保存位置的场合 */
+public class ResultTuple4 implements Tuple4Sink {
 
     public List<Tuple4> getTuple4s() {
         return tuple4s;
@@ -11,6 +13,7 @@ public class ResultTuple4 {
 
     private List<Tuple4> tuple4s = new ArrayList<>();
 
+    @Override
     public void append(String s1, String s2, String s3, String s4) {
         tuple4s.add(new Tuple4(s1, s2, s3, s4));
     }
@@ -19,6 +22,16 @@ public class ResultTuple4 {
         tuple4s.add(tuple4);
     }
 
+    @Override
+    public void close() {
+    }
+
+    public void writeTo(Tuple4Sink sink) throws IOException {
+        for (Tuple4 t4 : tuple4s) {
+            sink.append(t4.get(0), t4.get(1), t4.get(2), t4.get(3));
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
@@ -0,0 +1,10 @@
+package generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/* 生成器每生成一个四元式就交给它，不需要在内存中保存全部四元式 */
+public interface Tuple4Sink extends Closeable {
+
+    void append(String s1, String s2, String s3, String s4) throws IOException;
+}
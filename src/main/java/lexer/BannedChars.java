@@ -0,0 +1,91 @@
+package lexer;
+
+import util.BinaryIO;
+import util.BitArrays;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+    终结符后面对下一个字符的限制，即语言定义中的 ban 和 allow。位集合的第0位表示输入结束，第 c + 1 位表示字符c，
+    allow 为true时位集合中是允许出现的字符，否则是禁止出现的字符。输入结束在两种情况下都是允许的
+ */
+public class BannedChars {
+
+    public static final BannedChars NONE = new BannedChars(new long[0], false);
+
+    private static final int END_OF_INPUT = 0;
+
+    private final long[] words;
+
+    private final boolean allow;
+
+    private BannedChars(long[] words, boolean allow) {
+        this.words = words;
+        this.allow = allow;
+    }
+
+    private static long[] toWords(String chars, boolean endOfInput) {
+        int max = 0;
+        for (int i = 0; i < chars.length(); ++i) {
+            max = Math.max(max, chars.charAt(i) + 1);
+        }
+        long[] words = BitArrays.create(max + 1);
+        for (int i = 0; i < chars.length(); ++i) {
+            BitArrays.set(words, chars.charAt(i) + 1);
+        }
+        if (endOfInput) {
+            BitArrays.set(words, END_OF_INPUT);
+        }
+        return words;
+    }
+
+    public static BannedChars ban(String chars) {
+        return chars.isEmpty() ? NONE : new BannedChars(toWords(chars, false), false);
+    }
+
+    public static BannedChars allow(String chars) {
+        return new BannedChars(toWords(chars, true), true);
+    }
+
+    /* 终结符后面的字符是 input[pointer] 时是否不能接受，pointer 到达 limit 表示输入结束 */
+    public boolean isBanned(CharSequence input, int pointer, int limit) {
+        return BitArrays.get(words, pointer < limit ? input.charAt(pointer) + 1 : END_OF_INPUT) != allow;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeBoolean(allow);
+        BinaryIO.writeLongs(out, words);
+    }
+
+    public static BannedChars read(ByteBuffer buffer) {
+        boolean allow = buffer.get() != 0;
+        long[] words = BinaryIO.readLongs(buffer);
+        return !allow && BitArrays.isEmpty(words) ? NONE : new BannedChars(words, allow);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BannedChars)) {
+            return false;
+        }
+        BannedChars argument = (BannedChars) obj;
+        return allow == argument.allow && Arrays.equals(words, argument.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words) * 2 + (allow ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(allow ? "allow:" : "ban:");
+        for (int i = BitArrays.nextSetBit(words, END_OF_INPUT + 1); i >= 0; i = BitArrays.nextSetBit(words, i + 1)) {
+            result.append((char) (i - 1));
+        }
+        return result.toString();
+    }
+}
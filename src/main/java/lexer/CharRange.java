@@ -0,0 +1,93 @@
+package lexer;
+
+import java.util.*;
+
+public class CharRange implements Comparable<CharRange> {
+
+    //字符0不参与词法分析，.与[^...]覆盖的范围是 [MIN_CHAR, MAX_CHAR]
+    public static final char MIN_CHAR = 1, MAX_CHAR = Character.MAX_VALUE;
+
+    private final char begin;
+
+    private final char end;
+
+    public CharRange(char begin, char end) {
+        this.begin = (char) Math.min(begin, end);
+        this.end = (char) Math.max(begin, end);
+    }
+
+    public static CharRange of(char c) {
+        return new CharRange(c, c);
+    }
+
+    public char getBegin() {
+        return begin;
+    }
+
+    public char getEnd() {
+        return end;
+    }
+
+    public boolean contains(char c) {
+        return begin <= c && c <= end;
+    }
+
+    public static List<CharRange> complement(Collection<CharRange> ranges) {
+        List<CharRange> sorted = new ArrayList<>(ranges);
+        Collections.sort(sorted);
+        List<CharRange> result = new ArrayList<>();
+        int next = MIN_CHAR;
+        for (CharRange range : sorted) {
+            if (range.begin > next) {
+                result.add(new CharRange((char) next, (char) (range.begin - 1)));
+            }
+            next = Math.max(next, range.end + 1);
+        }
+        if (next <= MAX_CHAR) {
+            result.add(new CharRange((char) next, MAX_CHAR));
+        }
+        return result;
+    }
+
+    @Override
+    public int compareTo(CharRange o) {
+        return begin != o.begin ? begin - o.begin : end - o.end;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CharRange)) {
+            return false;
+        }
+        CharRange that = (CharRange) o;
+        return begin == that.begin && end == that.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return begin << 16 | end;
+    }
+
+    private static String escape(char c) {
+        switch (c) {
+            case '\t': return "\\\\t";
+            case '\r': return "\\\\r";
+            case '\n': return "\\\\n";
+            case '\f': return "\\\\f";
+            case '\\': return "\\\\";
+            case '"': return "\\\"";
+        }
+        if (c < ' ' || c > '~') {
+            return String.format("\\\\u%04x", (int) c);
+        }
+        return String.valueOf(c);
+    }
+
+    @Override
+    public String toString() {
+        return begin == end ? escape(begin) : escape(begin) + "-" + escape(end);
+    }
+}
@@ -0,0 +1,402 @@
+package lexer;
+
+import util.BinaryIO;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class CompiledDFA {
+
+    private static final int ASCII_SIZE = 128;
+
+    private static final int NO_STATE = -1;
+
+    public static final long NO_MATCH = -1L;
+
+    private static final int MAX_KEYWORD_SEEDS = 256;
+
+    //输入还没有读完，需要读入更多字符才能确定最长匹配
+    public static final long NEED_MORE = -2L;
+
+    private final int stateCount;
+
+    private final int classCount;
+
+    //区间 [intervalStarts[k], intervalStarts[k + 1]) 内的字符属于字符类 intervalClasses[k]，-1 表示没有任何转移
+    private final char[] intervalStarts;
+
+    private final int[] intervalClasses;
+
+    //ASCII字符直接查表得到字符类
+    private final int[] asciiClasses;
+
+    //状态 i 经字符类 k 的转移位于 transitions[i * classCount + k]
+    private final int[] transitions;
+
+    //状态 i 接受的终结符位于 acceptTokens[acceptOffsets[i] .. acceptOffsets[i + 1])，按优先级排列
+    private final int[] acceptOffsets;
+
+    private final int[] acceptTokens;
+
+    private final String[] tokenNames;
+
+    //终结符对下一个字符的限制，没有限制的是 BannedChars.NONE
+    private final BannedChars[] tokenBannedChars;
+
+    //识别后直接丢弃的终结符，即注释
+    private final boolean[] tokenSkipped;
+
+    //关键字的完美散列表：词法值散列后的位置上是唯一可能的关键字，-1 表示空位。关键字的终结符编号排在DFA的终结符之后
+    private final int[] keywordSlots;
+
+    private final int keywordSeed;
+
+    //匹配结果可能需要重新归类为关键字的终结符
+    private final boolean[] keywordHosts;
+
+    public CompiledDFA(DFA dfa) {
+        this(dfa, Collections.<String>emptyList(), Collections.<String>emptySet());
+    }
+
+    /* keywords 不在DFA中，匹配出的词法值与其中某个相同时归类为这个关键字；skipped 中的终结符识别后丢弃 */
+    public CompiledDFA(DFA dfa, List<String> keywords, Set<String> skipped) {
+        List<DFANode> nodes = new ArrayList<>();
+        Map<DFANode, Integer> ids = new HashMap<>();
+        TreeSet<CharRange> ranges = new TreeSet<>();
+        nodes.add(dfa.getRoot());
+        ids.put(dfa.getRoot(), 0);
+        for (int i = 0; i < nodes.size(); ++i) {
+            for (Map.Entry<CharRange, DFANode> entry : nodes.get(i).getStateTransformTable().entrySet()) {
+                ranges.add(entry.getKey());
+                if (!ids.containsKey(entry.getValue())) {
+                    ids.put(entry.getValue(), nodes.size());
+                    nodes.add(entry.getValue());
+                }
+            }
+        }
+        stateCount = nodes.size();
+
+        //DFA边上的字符范围互不相交，在所有状态上转移都相同的范围合并成同一个字符类
+        Map<List<Integer>, Integer> columns = new HashMap<>();
+        Map<CharRange, Integer> rangeClasses = new HashMap<>();
+        for (CharRange range : ranges) {
+            List<Integer> column = new ArrayList<>(stateCount);
+            for (DFANode node : nodes) {
+                DFANode next = node.getStateTransformTable().get(range);
+                column.add(next == null ? NO_STATE : ids.get(next));
+            }
+            if (!columns.containsKey(column)) {
+                columns.put(column, columns.size());
+            }
+            rangeClasses.put(range, columns.get(column));
+        }
+        classCount = columns.size();
+        transitions = new int[stateCount * classCount];
+        for (Map.Entry<List<Integer>, Integer> entry : columns.entrySet()) {
+            for (int i = 0; i < stateCount; ++i) {
+                transitions[i * classCount + entry.getValue()] = entry.getKey().get(i);
+            }
+        }
+
+        List<Character> starts = new ArrayList<>();
+        List<Integer> classes = new ArrayList<>();
+        int next = 0;
+        for (CharRange range : ranges) {
+            if (range.getBegin() > next) {
+                starts.add((char) next);
+                classes.add(NO_STATE);
+            }
+            starts.add(range.getBegin());
+            classes.add(rangeClasses.get(range));
+            next = range.getEnd() + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            starts.add((char) next);
+            classes.add(NO_STATE);
+        }
+        intervalStarts = new char[starts.size()];
+        intervalClasses = new int[classes.size()];
+        for (int i = 0; i < intervalStarts.length; ++i) {
+            intervalStarts[i] = starts.get(i);
+            intervalClasses[i] = classes.get(i);
+        }
+        asciiClasses = getAsciiClasses(intervalStarts, intervalClasses);
+
+        acceptOffsets = new int[stateCount + 1];
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> nameIds = new HashMap<>();
+        List<BannedChars> bannedChars = new ArrayList<>();
+        List<Integer> accepts = new ArrayList<>();
+        for (int i = 0; i < stateCount; ++i) {
+            DFANode node = nodes.get(i);
+            acceptOffsets[i] = accepts.size();
+            if (node.isFinal()) {
+                for (String name : node.getFinalNames()) {
+                    if (!nameIds.containsKey(name)) {
+                        nameIds.put(name, names.size());
+                        names.add(name);
+                        BannedChars banned = node.getFinalNamesToBannedChars().get(name);
+                        bannedChars.add(banned != null ? banned : BannedChars.NONE);
+                    }
+                    accepts.add(nameIds.get(name));
+                }
+            }
+        }
+        acceptOffsets[stateCount] = accepts.size();
+        acceptTokens = new int[accepts.size()];
+        for (int i = 0; i < acceptTokens.length; ++i) {
+            acceptTokens[i] = accepts.get(i);
+        }
+        int firstKeyword = names.size();
+        for (String keyword : keywords) {
+            names.add(keyword);
+            bannedChars.add(BannedChars.NONE);
+        }
+        tokenNames = names.toArray(new String[0]);
+        tokenBannedChars = bannedChars.toArray(new BannedChars[0]);
+        tokenSkipped = new boolean[tokenNames.length];
+        for (int i = 0; i < tokenNames.length; ++i) {
+            tokenSkipped[i] = skipped.contains(tokenNames[i]);
+        }
+
+        //散列表大小至少是关键字数的两倍，找不到没有冲突的种子时再加倍
+        int[] slots = new int[0];
+        int seed = 0;
+        if (!keywords.isEmpty()) {
+            int size = Integer.highestOneBit(keywords.size() * 2 - 1) << 1;
+            while ((slots = getKeywordSlots(firstKeyword, size, seed)) == null) {
+                if (++seed == MAX_KEYWORD_SEEDS) {
+                    seed = 0;
+                    size <<= 1;
+                }
+            }
+        }
+        keywordSlots = slots;
+        keywordSeed = seed;
+        keywordHosts = getKeywordHosts();
+    }
+
+    private CompiledDFA(int stateCount, int classCount, char[] intervalStarts, int[] intervalClasses, int[] transitions,
+                        int[] acceptOffsets, int[] acceptTokens, String[] tokenNames, BannedChars[] tokenBannedChars,
+                        boolean[] tokenSkipped, int[] keywordSlots, int keywordSeed) {
+        this.stateCount = stateCount;
+        this.classCount = classCount;
+        this.intervalStarts = intervalStarts;
+        this.intervalClasses = intervalClasses;
+        this.asciiClasses = getAsciiClasses(intervalStarts, intervalClasses);
+        this.transitions = transitions;
+        this.acceptOffsets = acceptOffsets;
+        this.acceptTokens = acceptTokens;
+        this.tokenNames = tokenNames;
+        this.tokenBannedChars = tokenBannedChars;
+        this.tokenSkipped = tokenSkipped;
+        this.keywordSlots = keywordSlots;
+        this.keywordSeed = keywordSeed;
+        this.keywordHosts = getKeywordHosts();
+    }
+
+    /* 编号从 firstKeyword 开始的关键字在这个种子下没有冲突时返回散列表，否则返回null */
+    private int[] getKeywordSlots(int firstKeyword, int size, int seed) {
+        int[] result = new int[size];
+        Arrays.fill(result, NO_STATE);
+        for (int token = firstKeyword; token < tokenNames.length; ++token) {
+            int slot = hash(tokenNames[token], 0, tokenNames[token].length(), seed) & size - 1;
+            if (result[slot] != NO_STATE) {
+                return null;
+            }
+            result[slot] = token;
+        }
+        return result;
+    }
+
+    /* DFA读完关键字后所在状态接受的终结符都可能需要重新归类 */
+    private boolean[] getKeywordHosts() {
+        boolean[] result = new boolean[tokenNames.length];
+        for (int keyword : keywordSlots) {
+            if (keyword == NO_STATE) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < tokenNames[keyword].length() && state != NO_STATE; ++i) {
+                state = next(state, tokenNames[keyword].charAt(i));
+            }
+            if (state != NO_STATE) {
+                for (int i = acceptOffsets[state]; i < acceptOffsets[state + 1]; ++i) {
+                    result[acceptTokens[i]] = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int hash(CharSequence input, int start, int end, int seed) {
+        int result = seed;
+        for (int i = start; i < end; ++i) {
+            result = (result ^ input.charAt(i)) * 0x01000193;
+        }
+        return result ^ result >>> 16;
+    }
+
+    /* [start, end) 是某个关键字时返回关键字的终结符编号，否则返回token */
+    private int findKeyword(CharSequence input, int start, int end, int token) {
+        int keyword = keywordSlots[hash(input, start, end, keywordSeed) & keywordSlots.length - 1];
+        if (keyword == NO_STATE || tokenNames[keyword].length() != end - start) {
+            return token;
+        }
+        for (int i = start; i < end; ++i) {
+            if (tokenNames[keyword].charAt(i - start) != input.charAt(i)) {
+                return token;
+            }
+        }
+        return keyword;
+    }
+
+    private static int[] getAsciiClasses(char[] intervalStarts, int[] intervalClasses) {
+        int[] result = new int[ASCII_SIZE];
+        int k = 0;
+        for (int c = 0; c < ASCII_SIZE; ++c) {
+            while (k + 1 < intervalStarts.length && intervalStarts[k + 1] <= c) {
+                ++k;
+            }
+            result[c] = intervalClasses[k];
+        }
+        return result;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(stateCount);
+        out.writeInt(classCount);
+        BinaryIO.writeChars(out, intervalStarts);
+        BinaryIO.writeInts(out, intervalClasses);
+        BinaryIO.writeInts(out, transitions);
+        BinaryIO.writeInts(out, acceptOffsets);
+        BinaryIO.writeInts(out, acceptTokens);
+        out.writeInt(tokenNames.length);
+        for (int i = 0; i < tokenNames.length; ++i) {
+            BinaryIO.writeString(out, tokenNames[i]);
+            tokenBannedChars[i].write(out);
+            out.writeBoolean(tokenSkipped[i]);
+        }
+        out.writeInt(keywordSeed);
+        BinaryIO.writeInts(out, keywordSlots);
+    }
+
+    public static CompiledDFA read(ByteBuffer buffer) {
+        int stateCount = buffer.getInt();
+        int classCount = buffer.getInt();
+        char[] intervalStarts = BinaryIO.readChars(buffer);
+        int[] intervalClasses = BinaryIO.readInts(buffer);
+        int[] transitions = BinaryIO.readInts(buffer);
+        int[] acceptOffsets = BinaryIO.readInts(buffer);
+        int[] acceptTokens = BinaryIO.readInts(buffer);
+        String[] tokenNames = new String[buffer.getInt()];
+        BannedChars[] tokenBannedChars = new BannedChars[tokenNames.length];
+        boolean[] tokenSkipped = new boolean[tokenNames.length];
+        for (int i = 0; i < tokenNames.length; ++i) {
+            tokenNames[i] = BinaryIO.readString(buffer);
+            tokenBannedChars[i] = BannedChars.read(buffer);
+            tokenSkipped[i] = buffer.get() != 0;
+        }
+        int keywordSeed = buffer.getInt();
+        int[] keywordSlots = BinaryIO.readInts(buffer);
+        return new CompiledDFA(stateCount, classCount, intervalStarts, intervalClasses, transitions,
+                acceptOffsets, acceptTokens, tokenNames, tokenBannedChars, tokenSkipped, keywordSlots, keywordSeed);
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getTokenCount() {
+        return tokenNames.length;
+    }
+
+    public String getTokenName(int token) {
+        return tokenNames[token];
+    }
+
+    public boolean isSkipped(int token) {
+        return tokenSkipped[token];
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    private int next(int state, char c) {
+        int charClass;
+        if (c < ASCII_SIZE) {
+            charClass = asciiClasses[c];
+        }
+        else {
+            int index = Arrays.binarySearch(intervalStarts, c);
+            charClass = intervalClasses[index >= 0 ? index : -index - 2];
+        }
+        return charClass == NO_STATE ? NO_STATE : transitions[state * classCount + charClass];
+    }
+
+    private int accept(int state, CharSequence input, int pointer, int limit) {
+        for (int i = acceptOffsets[state]; i < acceptOffsets[state + 1]; ++i) {
+            int token = acceptTokens[i];
+            if (!tokenBannedChars[token].isBanned(input, pointer, limit)) {
+                return token;
+            }
+        }
+        return NO_STATE;
+    }
+
+    /* 返回值高32位为终结符编号，低32位为匹配长度，无法匹配时返回NO_MATCH */
+    public long scan(CharSequence input, int start) {
+        return scan(input, start, input.length(), true);
+    }
+
+    /* 只扫描 [start, limit)，endOfInput 为false时，如果扫描到 limit 还不能确定结果则返回NEED_MORE */
+    public long scan(CharSequence input, int start, int limit, boolean endOfInput) {
+        int state = 0;
+        int pointer = start;
+        int acceptToken = NO_STATE, acceptEnd = start;
+        while (true) {
+            if (pointer >= limit && !endOfInput) {
+                return NEED_MORE;
+            }
+            int token = accept(state, input, pointer, limit);
+            if (token != NO_STATE) {
+                acceptToken = token;
+                acceptEnd = pointer;
+            }
+            if (pointer >= limit) {
+                break;
+            }
+            state = next(state, input.charAt(pointer));
+            if (state == NO_STATE) {
+                break;
+            }
+            ++pointer;
+        }
+        if (acceptToken == NO_STATE) {
+            return NO_MATCH;
+        }
+        if (keywordHosts[acceptToken]) {
+            acceptToken = findKeyword(input, start, acceptEnd, acceptToken);
+        }
+        return ((long) acceptToken << 32) | (acceptEnd - start);
+    }
+
+    public static int tokenOf(long match) {
+        return (int) (match >>> 32);
+    }
+
+    public static int lengthOf(long match) {
+        return (int) match;
+    }
+
+    public Map.Entry<String, Integer> analysis(String substring) {
+        long match = scan(substring, 0);
+        if (match == NO_MATCH) {
+            return null;
+        }
+        return new AbstractMap.SimpleEntry<>(tokenNames[tokenOf(match)], lengthOf(match));
+    }
+}
@@ -40,132 +40,137 @@ public class DFA {
     }
 
     public void simplify() {
-        HashMap<Map.Entry<DFANode, DFANode>, DFALinkState> map = new HashMap<>();
-        Set<DFANode> nodes = new HashSet<>();
-        root.setLinkedNodes(nodes);
-        
-        for (DFANode node: nodes) {
-            for (DFANode anotherNode: nodes) {
-                DFALinkState dfaLinkState = new DFALinkState();
-                if (node == anotherNode){
-                    dfaLinkState.setState(DFALinkState.STATE_SAME);
+        //按广度优先给状态编号，编号为 stateCount 的是补全转移用的死状态
+        List<DFANode> nodes = new ArrayList<>();
+        Map<DFANode, Integer> ids = new HashMap<>();
+        List<CharRange> alphabet = new ArrayList<>();
+        Map<CharRange, Integer> alphabetIds = new HashMap<>();
+        nodes.add(root);
+        ids.put(root, 0);
+        for (int i = 0; i < nodes.size(); ++i) {
+            for (Map.Entry<CharRange, DFANode> entry : nodes.get(i).getStateTransformTable().entrySet()) {
+                if (!alphabetIds.containsKey(entry.getKey())) {
+                    alphabetIds.put(entry.getKey(), alphabet.size());
+                    alphabet.add(entry.getKey());
                 }
-                else {
-                    dfaLinkState.setState(DFALinkState.STATE_UNDEFINED);
+                if (!ids.containsKey(entry.getValue())) {
+                    ids.put(entry.getValue(), nodes.size());
+                    nodes.add(entry.getValue());
                 }
-                map.put(new AbstractMap.SimpleEntry<>(node, anotherNode), dfaLinkState);
             }
         }
-        Stack<Map.Entry<DFANode, DFANode>> willProceed = new Stack<>();
-        
-        for (DFANode node: nodes) {
-            for (DFANode anotherNode: nodes) {
-                if (node != anotherNode) {
-                    int willState = DFALinkState.STATE_UNDEFINED;
-                    if (!node.getStateTransformTable().keySet().containsAll(anotherNode.getStateTransformTable().keySet())
-                            || !(node.getStateTransformTable().size() == anotherNode.getStateTransformTable().size())
-                            || node.isFinal() != anotherNode.isFinal()
-                            || node.isFinal() && anotherNode.isFinal() && !node.getFinalNames().equals(anotherNode.getFinalNames())
-                            || node.isFinal() && anotherNode.isFinal() && !node.getFinalNamesToBannedStrs().equals(anotherNode.getFinalNamesToBannedStrs())) {
-                        willState = DFALinkState.STATE_DIFF;
-                    }
-                    else {
-                        for (String s: node.getStateTransformTable().keySet()) {
-                            DFANode nodeNext = node.getStateTransformTable().get(s);
-                            DFANode nodeAnotherNode = anotherNode.getStateTransformTable().get(s);
-                            map.get(new AbstractMap.SimpleEntry<>(node, anotherNode)).addSlot(nodeNext, nodeAnotherNode);
-                            map.get(new AbstractMap.SimpleEntry<>(nodeNext, nodeAnotherNode)).addSignal(node, anotherNode);
-                        }
-                    }
-                    if (willState == DFALinkState.STATE_DIFF) {
-                        map.get(new AbstractMap.SimpleEntry<>(node, anotherNode)).setState(DFALinkState.STATE_DIFF);
-                        willProceed.add(new AbstractMap.SimpleEntry<>(node, anotherNode));
-                    }
-                    else if (map.get(new AbstractMap.SimpleEntry<>(node, anotherNode)).getSlot().size() <= 0) {
-                        map.get(new AbstractMap.SimpleEntry<>(node, anotherNode)).setState(DFALinkState.STATE_SAME);
-                        willProceed.add(new AbstractMap.SimpleEntry<>(node, anotherNode));
-                    }
-                }
+        int stateCount = nodes.size();
+        int dead = stateCount;
+        int symbolCount = alphabet.size();
+        int[] transitions = new int[(stateCount + 1) * symbolCount];
+        Arrays.fill(transitions, dead);
+        for (int i = 0; i < stateCount; ++i) {
+            for (Map.Entry<CharRange, DFANode> entry : nodes.get(i).getStateTransformTable().entrySet()) {
+                transitions[i * symbolCount + alphabetIds.get(entry.getKey())] = ids.get(entry.getValue());
             }
         }
-        
-        while (!willProceed.empty()) {
-            Map.Entry<DFANode, DFANode> pair = willProceed.pop();
-            if (map.get(pair).getState() == DFALinkState.STATE_DIFF) {
-                for (Map.Entry<DFANode, DFANode> signalPair: map.get(pair).getSignal()) {
-                    if (map.get(signalPair).getState() == DFALinkState.STATE_UNDEFINED) {
-                        map.get(signalPair).setState(DFALinkState.STATE_DIFF);
-                        willProceed.add(signalPair);
-                    }
-                }
-            }
-            else if (map.get(pair).getState() == DFALinkState.STATE_SAME) {
-                for (Map.Entry<DFANode, DFANode> signalPair: map.get(pair).getSignal()) {
-                    map.get(signalPair).removeSlot(pair);
-                    if (map.get(signalPair).getState() == DFALinkState.STATE_UNDEFINED &&
-                            map.get(signalPair).getSlot().size() <= 0) {
-                        map.get(signalPair).setState(DFALinkState.STATE_SAME);
-                        willProceed.add(signalPair);
-                    }
-                }
-                map.get(pair).clearSignal();
+
+        //反向转移按 (字符, 目标状态) 分组，predecessors[predecessorOffsets[a * (stateCount + 1) + q] ..] 是经 a 到达 q 的状态
+        int[] predecessorOffsets = new int[symbolCount * (stateCount + 1) + 1];
+        for (int q = 0; q <= stateCount; ++q) {
+            for (int a = 0; a < symbolCount; ++a) {
+                ++predecessorOffsets[a * (stateCount + 1) + transitions[q * symbolCount + a] + 1];
             }
         }
-        
-        Map<DFANode, Set<DFANode>> linkedNodes = new HashMap<>();
-        for (DFANode node: nodes) {
-            linkedNodes.put(node, new HashSet<>());
+        for (int i = 1; i < predecessorOffsets.length; ++i) {
+            predecessorOffsets[i] += predecessorOffsets[i - 1];
         }
-        for (DFANode node: nodes) {
-            for (DFANode anotherNode: nodes) {
-                if (node != anotherNode && map.get(new AbstractMap.SimpleEntry<>(node, anotherNode)).getState() != DFALinkState.STATE_DIFF) {
-                    linkedNodes.get(node).add(anotherNode);
-                }
+        int[] predecessors = new int[(stateCount + 1) * symbolCount];
+        int[] fill = Arrays.copyOf(predecessorOffsets, predecessorOffsets.length - 1);
+        for (int q = 0; q <= stateCount; ++q) {
+            for (int a = 0; a < symbolCount; ++a) {
+                predecessors[fill[a * (stateCount + 1) + transitions[q * symbolCount + a]]++] = q;
             }
         }
 
-        Set<Set<DFANode> > mergedNodes = new HashSet<>();
-        Map<DFANode, Set<DFANode>> mergedNodesMap = new HashMap<>();
-        while (!nodes.isEmpty()) {
-            DFANode node = nodes.iterator().next();
-            Set<DFANode> partMergedNodes = new HashSet<>();
-            partMergedNodes.add(node);
-            dfsMakeMerged(node, linkedNodes, partMergedNodes);
-            for (DFANode mergedNode: partMergedNodes) {
-                mergedNodesMap.put(mergedNode, partMergedNodes);
+        //初始划分：非终态与死状态一组，终态按接受的终结符及其禁止字符分组
+        Map<List<Object>, Integer> signatures = new HashMap<>();
+        int[] initialBlocks = new int[stateCount + 1];
+        for (int i = 0; i <= stateCount; ++i) {
+            List<Object> signature = Collections.emptyList();
+            if (i < stateCount && nodes.get(i).isFinal()) {
+                signature = Arrays.asList(nodes.get(i).getFinalNames(), nodes.get(i).getFinalNamesToBannedChars());
+            }
+            if (!signatures.containsKey(signature)) {
+                signatures.put(signature, signatures.size());
             }
-            mergedNodes.add(partMergedNodes);
-            nodes.removeAll(partMergedNodes);
+            initialBlocks[i] = signatures.get(signature);
         }
-        Map<Set<DFANode>, DFANode> finalNodesMap = new HashMap<>();
-        for (Set<DFANode> partMergedNodes: mergedNodes) {
-            finalNodesMap.put(partMergedNodes, new DFANode());
+        DFAPartition partition = new DFAPartition(initialBlocks, signatures.size());
+
+        Deque<Integer> willProceed = new ArrayDeque<>();
+        boolean[] proceeding = new boolean[stateCount + 1];
+        for (int i = 0; i < partition.getBlockCount(); ++i) {
+            willProceed.add(i);
+            proceeding[i] = true;
         }
+        int[] touchedBlocks = new int[stateCount + 1];
+        while (!willProceed.isEmpty()) {
+            int splitter = willProceed.poll();
+            proceeding[splitter] = false;
+            int[] splitterStates = partition.getElements(splitter);
+            for (int a = 0; a < symbolCount; ++a) {
+                int touchedCount = 0;
+                for (int q : splitterStates) {
+                    int index = a * (stateCount + 1) + q;
+                    for (int k = predecessorOffsets[index]; k < predecessorOffsets[index + 1]; ++k) {
+                        if (partition.mark(predecessors[k])) {
+                            touchedBlocks[touchedCount++] = partition.getBlock(predecessors[k]);
+                        }
+                    }
+                }
+                for (int i = 0; i < touchedCount; ++i) {
+                    int block = touchedBlocks[i];
+                    int newBlock = partition.split(block);
+                    if (newBlock < 0) {
+                        continue;
+                    }
+                    //只需处理较小的一半，除非原块本身还在等待处理
+                    int willAdd = proceeding[block] || partition.getSize(newBlock) <= partition.getSize(block) ? newBlock : block;
+                    willProceed.add(willAdd);
+                    proceeding[willAdd] = true;
+                }
+            }
+        }
+
+        //与死状态等价的状态不会再到达终态，直接去掉
+        int deadBlock = partition.getBlock(dead);
+        int rootBlock = partition.getBlock(0);
+        DFANode[] blockNodes = new DFANode[partition.getBlockCount()];
+        List<Integer> representatives = new ArrayList<>();
         finalNodes.clear();
-        for (DFANode node: linkedNodes.keySet()) {
-            DFANode finalMapNode = finalNodesMap.get(mergedNodesMap.get(node));
+        for (int i = 0; i < stateCount; ++i) {
+            int block = partition.getBlock(i);
+            if (blockNodes[block] != null || block == deadBlock && block != rootBlock) {
+                continue;
+            }
+            representatives.add(i);
+            DFANode node = nodes.get(i);
+            DFANode finalMapNode = new DFANode();
+            blockNodes[block] = finalMapNode;
             if (node.isFinal()) {
                 finalMapNode.setFinal(true);
                 finalMapNode.setFinalNames(node.getFinalNames());
-                finalMapNode.setFinalNamesToBannedStrs(node.getFinalNamesToBannedStrs());
+                finalMapNode.setFinalNamesToBannedChars(node.getFinalNamesToBannedChars());
                 finalNodes.add(finalMapNode);
             }
-            for (String transformStr: node.getStateTransformTable().keySet()) {
-                finalMapNode.addToTransformTable(transformStr, finalNodesMap.get(mergedNodesMap.get(node.getStateTransformTable().get(transformStr))));
-            }
         }
-        
-        root = finalNodesMap.get(mergedNodesMap.get(root));
-    }
-
-    private void dfsMakeMerged(DFANode node, Map<DFANode, Set<DFANode>> linkedNodes, Set<DFANode> partMergedNodes) {
-        Set<DFANode> anotherNodes = linkedNodes.get(node);
-        for (DFANode anotherNode: anotherNodes) {
-            if (!partMergedNodes.contains(anotherNode)) {
-                partMergedNodes.add(anotherNode);
-                dfsMakeMerged(anotherNode, linkedNodes, partMergedNodes);
+        for (int i : representatives) {
+            DFANode finalMapNode = blockNodes[partition.getBlock(i)];
+            for (Map.Entry<CharRange, DFANode> entry : nodes.get(i).getStateTransformTable().entrySet()) {
+                int targetBlock = partition.getBlock(ids.get(entry.getValue()));
+                if (targetBlock != deadBlock) {
+                    finalMapNode.addToTransformTable(entry.getKey(), blockNodes[targetBlock]);
+                }
             }
         }
+
+        root = blockNodes[rootBlock];
     }
 
     public static DFA fastDFA(String str) {
@@ -173,8 +178,7 @@ public class DFA {
         DFANode pointer = root;
         for (int i = 0; i < str.length(); ++i) {
             DFANode next = new DFANode();
-            String c = String.valueOf(str.charAt(i));
-            pointer.addToTransformTable(c, next);
+            pointer.addToTransformTable(CharRange.of(str.charAt(i)), next);
             pointer = next;
         }
         pointer.setFinal(true);
@@ -186,13 +190,13 @@ public class DFA {
         Stack<Map.Entry<DFANode, Integer>> finalNodes = new Stack<>();
         int pointer = 0;
         while (pointer < substring.length()) {
-            String next = String.valueOf(substring.charAt(pointer));
             if (node.isFinal()){
                 finalNodes.push(new AbstractMap.SimpleEntry<>(node, pointer));
             }
 
-            if (node.getStateTransformTable().containsKey(next)) {
-                node = node.getStateTransformTable().get(next);
+            DFANode next = node.getNext(substring.charAt(pointer));
+            if (next != null) {
+                node = next;
             }
             else {
                 break;
@@ -205,8 +209,8 @@ public class DFA {
         while (!finalNodes.empty()){
             Map.Entry<DFANode, Integer> analyzeFinal = finalNodes.pop();
             for (String str: analyzeFinal.getKey().getFinalNames()){
-                if (!analyzeFinal.getKey().getFinalNamesToBannedStrs().containsKey(str) ||
-                    !analyzeFinal.getKey().getFinalNamesToBannedStrs().get(str).contains(String.valueOf(substring.charAt(analyzeFinal.getValue())))){
+                BannedChars bannedChars = analyzeFinal.getKey().getFinalNamesToBannedChars().get(str);
+                if (bannedChars == null || !bannedChars.isBanned(substring, analyzeFinal.getValue(), substring.length())){
                     return new AbstractMap.SimpleEntry<>(str, analyzeFinal.getValue());
                 }
             }
@@ -8,13 +8,13 @@ public class DFANode {
 
     private String serialCode = null;
 
-    private Map<String, DFANode> stateTransformTable;
+    private Map<CharRange, DFANode> stateTransformTable;
 
     private boolean isFinal = false;
 
     private List<String> finalNames = null;
 
-    private Map<String, Set<String>> finalNamesToBannedStrs = null;
+    private Map<String, BannedChars> finalNamesToBannedChars = null;
 
     public List<String> getFinalNames() {
         return finalNames;
@@ -24,15 +24,15 @@ public class DFANode {
         this.finalNames = finalNames;
     }
 
-    public Map<String, Set<String>> getFinalNamesToBannedStrs() {
-        return finalNamesToBannedStrs;
+    public Map<String, BannedChars> getFinalNamesToBannedChars() {
+        return finalNamesToBannedChars;
     }
 
-    public void setFinalNamesToBannedStrs(Map<String, Set<String>> finalNamesToBannedStrs) {
-        this.finalNamesToBannedStrs = finalNamesToBannedStrs;
+    public void setFinalNamesToBannedChars(Map<String, BannedChars> finalNamesToBannedChars) {
+        this.finalNamesToBannedChars = finalNamesToBannedChars;
     }
 
-    public Map<String, DFANode> getStateTransformTable() {
+    public Map<CharRange, DFANode> getStateTransformTable() {
         return stateTransformTable;
     }
 
@@ -48,7 +48,7 @@ public class DFANode {
         serialCode = StringGenerator.getNextCode();
         stateTransformTable = new HashMap<>();
         finalNames = new ArrayList<>();
-        finalNamesToBannedStrs = new HashMap<>();
+        finalNamesToBannedChars = new HashMap<>();
     }
 
     public String getSerial() {
@@ -56,17 +56,9 @@ public class DFANode {
     }
 
     public void setTransformTableByText(Set<String> result){
-        for (String trans: stateTransformTable.keySet()) {
+        for (CharRange trans: stateTransformTable.keySet()) {
             DFANode end = stateTransformTable.get(trans);
-            String printTrans = trans;
-            switch(trans) {
-                case "\t": printTrans = "\\\\t"; break;
-                case "\r": printTrans = "\\\\r"; break;
-                case "\n": printTrans = "\\\\n"; break;
-                case "\f": printTrans = "\\\\f"; break;
-                case "\\": printTrans = "\\\\"; break;
-            }
-            String willAdd = getSerial() + " -> " + end.getSerial() + "[label=\"" + printTrans + "\"]";
+            String willAdd = getSerial() + " -> " + end.getSerial() + "[label=\"" + trans + "\"]";
             if (!result.contains(willAdd)) {
                 result.add(willAdd);
                 end.setTransformTableByText(result);
@@ -76,8 +68,7 @@ public class DFANode {
 
     public void setLinkedNodes(Set<DFANode> result){
         result.add(this);
-        for (String trans: stateTransformTable.keySet()) {
-            DFANode end = stateTransformTable.get(trans);
+        for (DFANode end: stateTransformTable.values()) {
             if (!result.contains(end)) {
                 result.add(end);
                 end.setLinkedNodes(result);
@@ -85,8 +76,17 @@ public class DFANode {
         }
     }
 
-    public void addToTransformTable(String s, DFANode next) {
-        stateTransformTable.put(s, next);
+    public void addToTransformTable(CharRange range, DFANode next) {
+        stateTransformTable.put(range, next);
+    }
+
+    public DFANode getNext(char c) {
+        for (Map.Entry<CharRange, DFANode> entry : stateTransformTable.entrySet()) {
+            if (entry.getKey().contains(c)) {
+                return entry.getValue();
+            }
+        }
+        return null;
     }
 
     @Override
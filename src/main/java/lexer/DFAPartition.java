@@ -0,0 +1,98 @@
+package lexer;
+
+import java.util.Arrays;
+
+/* 可细分的状态划分，状态按所在块连续存放，块内被标记的状态交换到块首 */
+class DFAPartition {
+
+    private final int[] elements;
+
+    private final int[] locations;
+
+    private final int[] blockOf;
+
+    private final int[] first;
+
+    private final int[] end;
+
+    private final int[] marked;
+
+    private int blockCount;
+
+    DFAPartition(int[] initialBlocks, int initialBlockCount) {
+        int size = initialBlocks.length;
+        elements = new int[size];
+        locations = new int[size];
+        blockOf = new int[size];
+        first = new int[size];
+        end = new int[size];
+        marked = new int[size];
+        blockCount = initialBlockCount;
+
+        int[] counts = new int[initialBlockCount + 1];
+        for (int block : initialBlocks) {
+            ++counts[block + 1];
+        }
+        for (int i = 0; i < initialBlockCount; ++i) {
+            counts[i + 1] += counts[i];
+            first[i] = counts[i];
+            end[i] = counts[i + 1];
+        }
+        for (int i = 0; i < size; ++i) {
+            int block = initialBlocks[i];
+            int location = counts[block]++;
+            elements[location] = i;
+            locations[i] = location;
+            blockOf[i] = block;
+        }
+    }
+
+    int getBlockCount() {
+        return blockCount;
+    }
+
+    int getBlock(int element) {
+        return blockOf[element];
+    }
+
+    int getSize(int block) {
+        return end[block] - first[block];
+    }
+
+    int[] getElements(int block) {
+        return Arrays.copyOfRange(elements, first[block], end[block]);
+    }
+
+    /* 返回该块在本轮中是否第一次被标记 */
+    boolean mark(int element) {
+        int block = blockOf[element];
+        int location = locations[element];
+        int markedEnd = first[block] + marked[block];
+        if (location < markedEnd) {
+            return false;
+        }
+        int other = elements[markedEnd];
+        elements[location] = other;
+        locations[other] = location;
+        elements[markedEnd] = element;
+        locations[element] = markedEnd;
+        return marked[block]++ == 0;
+    }
+
+    /* 把块中被标记的部分分成新块，返回新块编号，全部被标记时不分裂并返回-1 */
+    int split(int block) {
+        int markedEnd = first[block] + marked[block];
+        marked[block] = 0;
+        if (markedEnd == end[block]) {
+            return -1;
+        }
+        int newBlock = blockCount++;
+        first[newBlock] = first[block];
+        end[newBlock] = markedEnd;
+        first[block] = markedEnd;
+        for (int i = first[newBlock]; i < end[newBlock]; ++i) {
+            blockOf[elements[i]] = newBlock;
+        }
+        return newBlock;
+    }
+}
@@ -1,60 +1,148 @@
 package lexer;
 
 import exception.PLDLAnalysisException;
+import symbol.AbstractSymbol;
 import symbol.AbstractTerminator;
-import symbol.Symbol;
-import symbol.Terminator;
+import symbol.SymbolPool;
+import symbol.TokenBuffer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.*;
 
 public class Lexer {
 
     private DFA dfa = null;
 
+    private CompiledDFA compiledDFA = null;
+
+    //每种词法单元对应的终结符，所有识别出的同种词法单元共用一个实例
+    private AbstractTerminator[] tokenTerminators = null;
+
     public Lexer(DFA dfa) {
         this.dfa = dfa;
+        setCompiledDFA(new CompiledDFA(dfa));
+    }
+
+    public Lexer(CompiledDFA compiledDFA) {
+        setCompiledDFA(compiledDFA);
+    }
+
+    private void setCompiledDFA(CompiledDFA compiledDFA) {
+        this.compiledDFA = compiledDFA;
+        tokenTerminators = new AbstractTerminator[compiledDFA.getTokenCount()];
+        for (int i = 0; i < tokenTerminators.length; ++i) {
+            tokenTerminators[i] = new AbstractTerminator(compiledDFA.getTokenName(i));
+        }
+    }
+
+    /* 词法单元使用符号池中的终结符，之后的语法分析不需要再按名字查找。符号池中没有的词法单元保持不变 */
+    public void setSymbolPool(SymbolPool pool) {
+        AbstractTerminator[] terminators = tokenTerminators.clone();
+        for (int i = 0; i < terminators.length; ++i) {
+            AbstractSymbol symbol = pool.getCanonicalSymbol(terminators[i]);
+            if (symbol != null) {
+                terminators[i] = (AbstractTerminator) symbol;
+            }
+        }
+        tokenTerminators = terminators;
+    }
+
+    public CompiledDFA getCompiledDFA() {
+        return compiledDFA;
+    }
+
+    public TokenStream getTokenStream(Reader reader, Set<Character> emptyChars) {
+        return new TokenStream(compiledDFA, tokenTerminators, reader, emptyChars);
+    }
+
+    TokenStream getTokenStream(Reader reader, Set<Character> emptyChars, int bufferSize) {
+        return new TokenStream(compiledDFA, tokenTerminators, reader, emptyChars, bufferSize);
     }
 
-    public Lexer(List<Map.Entry<String, NFA>> regexes, Map<String, String> bannedStrs) {
+    public TokenStream getTokenStream(ReadableByteChannel channel, Charset charset, Set<Character> emptyChars) {
+        return new TokenStream(compiledDFA, tokenTerminators, Channels.newReader(channel, charset.newDecoder(), -1), emptyChars);
+    }
+
+    public Lexer(List<Map.Entry<String, NFA>> regexes, Map<String, BannedChars> bannedChars) {
+        this(regexes, bannedChars, Collections.<String>emptySet(), Collections.<String>emptySet());
+    }
+
+    /*
+        keywords 是正则表达式就是名字本身的平凡终结符。其中能交给散列表的关键字不放入DFA，
+        DFA匹配出与关键字相同的词法值后再归类为关键字，这样关键字的前缀不会把标识符的状态拆开。
+        skipped 中的终结符（注释）识别出来后直接丢弃，不放入词法单元缓冲区
+     */
+    public Lexer(List<Map.Entry<String, NFA>> regexes, Map<String, BannedChars> bannedChars, Set<String> keywords, Set<String> skipped) {
+        if (bannedChars == null) {
+            bannedChars = new HashMap<>();
+        }
+        List<String> hashedKeywords = new ArrayList<>();
+        for (int i = 0; i < regexes.size(); ++i) {
+            if (keywords.contains(regexes.get(i).getKey()) && isHashable(regexes, bannedChars, keywords, i)) {
+                hashedKeywords.add(regexes.get(i).getKey());
+            }
+        }
         Map<String, NFA> regexesNFAs = new HashMap<>();
         Map<String, Integer> regexesOrders = new HashMap<>();
-        Map<String, Set<String>> regexesBannedOrders = new HashMap<>();
         for (int i = 0; i < regexes.size(); ++i){
+            if (hashedKeywords.contains(regexes.get(i).getKey())) {
+                continue;
+            }
             regexesOrders.put(regexes.get(i).getKey(), i);
             regexesNFAs.put(regexes.get(i).getKey(), regexes.get(i).getValue());
         }
-        if (bannedStrs != null) {
-            for (String name : bannedStrs.keySet()) {
-                regexesBannedOrders.put(name, new HashSet<>());
-                for (char c : bannedStrs.get(name).toCharArray()) {
-                    regexesBannedOrders.get(name).add(String.valueOf(c));
-                }
-            }
-        }
         NFA allNFA = NFA.getJoinedNFA(regexesNFAs);
         //allNFA.draw(new File("images/nfa.png"));
-        dfa = allNFA.toDFA(regexesOrders, regexesBannedOrders);
+        dfa = allNFA.toDFA(regexesOrders, bannedChars);
         //dfa.draw(new File("images/dfa_raw.png"));
         dfa.simplify();
         //dfa.draw(new File("images/dfa.png"));
+        setCompiledDFA(new CompiledDFA(dfa, hashedKeywords, skipped));
+    }
+
+    /*
+        第index个关键字能交给散列表，需要其它能完整匹配它的终结符优先级都比它低，并且其中至少有一个没有 ban/allow 限制。
+        这样DFA总能匹配出至少和关键字一样长的词法值，长度相同时原来也总是选择这个关键字
+     */
+    private static boolean isHashable(List<Map.Entry<String, NFA>> regexes, Map<String, BannedChars> bannedChars,
+                                      Set<String> keywords, int index) {
+        String keyword = regexes.get(index).getKey();
+        boolean hosted = false;
+        for (int i = 0; i < regexes.size(); ++i) {
+            String name = regexes.get(i).getKey();
+            if (i == index || keywords.contains(name) || !regexes.get(i).getValue().accepts(keyword)) {
+                continue;
+            }
+            if (i < index) {
+                return false;
+            }
+            if (!bannedChars.containsKey(name) || bannedChars.get(name).equals(BannedChars.NONE)) {
+                hosted = true;
+            }
+        }
+        return hosted;
     }
 
-    public List<Symbol> analysis(String str, Set<Character> emptyChars) throws PLDLAnalysisException {
+    public TokenBuffer analysis(CharSequence str, Set<Character> emptyChars) throws PLDLAnalysisException {
+        TokenBuffer result = new TokenBuffer(str.length() / 4 + 1);
+        result.reset(tokenTerminators);
+        result.setSource(str);
         int pointer = 0;
-        List<Symbol> result = new ArrayList<>();
         if (str.length() > 0) {
             while (pointer < str.length()) {
                 if (!emptyChars.contains(str.charAt(pointer))) {
-                    String substring = str.substring(pointer);
-                    Map.Entry<String, Integer> analysisResult = dfa.analysis(substring);
-                    if (analysisResult != null) {
-                        Terminator simpleResult = new Terminator(new AbstractTerminator(analysisResult.getKey()));
-                        simpleResult.addProperty("val", str.substring(pointer, pointer + analysisResult.getValue()));
-                        result.add(simpleResult);
-                        //System.out.println("matched: " + str.substring(pointer, pointer + analysisResult.getValue()) + " by " + analysisResult.getKey());
-                        pointer += analysisResult.getValue();
+                    long match = compiledDFA.scan(str, pointer);
+                    if (match != CompiledDFA.NO_MATCH) {
+                        int length = CompiledDFA.lengthOf(match);
+                        if (!compiledDFA.isSkipped(CompiledDFA.tokenOf(match))) {
+                            result.add(CompiledDFA.tokenOf(match), pointer, length);
+                        }
+                        pointer += length;
                     } else {
                         throw new PLDLAnalysisException("词法分析错误出现在第  " + getRow(pointer, str) + " 行，第 " + getColumn(pointer, str) + " 列", null);
                     }
@@ -64,18 +152,15 @@ public class Lexer {
             }
         }
         else {
-            Map.Entry<String, Integer> analysisResult = dfa.analysis(str);
-            if (analysisResult != null) {
-                Terminator simpleResult = new Terminator(new AbstractTerminator(analysisResult.getKey()));
-                simpleResult.addProperty("name", str.substring(pointer, pointer + analysisResult.getValue()));
-                result.add(simpleResult);
-                //System.out.println("matched: " + str.substring(pointer, pointer + analysisResult.getValue()) + " by " + analysisResult.getKey());
+            long match = compiledDFA.scan(str, 0);
+            if (match != CompiledDFA.NO_MATCH && !compiledDFA.isSkipped(CompiledDFA.tokenOf(match))) {
+                result.add(CompiledDFA.tokenOf(match), 0, CompiledDFA.lengthOf(match));
             }
         }
         return result;
     }
 
-    private int getColumn(int pointer, String str) {
+    private int getColumn(int pointer, CharSequence str) {
         int result = 0;
         for (int i = pointer; i >= 0; --i) {
             if (str.charAt(i) == '\n') {
@@ -88,7 +173,7 @@ public class Lexer {
         return result;
     }
 
-    private int getRow(int pointer, String str) {
+    private int getRow(int pointer, CharSequence str) {
         int result = 0;
         for (int i = 0; i < pointer; ++i) {
             char temp = str.charAt(i);
@@ -28,7 +28,33 @@ public class NFA {
         return root;
     }
 
-    public DFA toDFA(Map<String, Integer> ordersMap, Map<String, Set<String>> bannedStrMap) {
+    public DFA toDFA(Map<String, Integer> ordersMap, Map<String, BannedChars> bannedCharsMap) {
+        //把所有边上的字符范围切分成互不相交的字符类，字符类 i 为 [cuts[i], cuts[i + 1])，子集构造按字符类进行
+        List<NFANode> allNodes = new ArrayList<>();
+        Set<NFANode> visited = new HashSet<>();
+        allNodes.add(root);
+        visited.add(root);
+        TreeSet<Integer> cutSet = new TreeSet<>();
+        for (int i = 0; i < allNodes.size(); ++i) {
+            NFANode node = allNodes.get(i);
+            List<NFANode> ends = new ArrayList<>(node.getNullTransforms());
+            for (Map.Entry<CharRange, Set<NFANode>> entry : node.getStateTransformTable().entrySet()) {
+                cutSet.add((int) entry.getKey().getBegin());
+                cutSet.add(entry.getKey().getEnd() + 1);
+                ends.addAll(entry.getValue());
+            }
+            for (NFANode end : ends) {
+                if (visited.add(end)) {
+                    allNodes.add(end);
+                }
+            }
+        }
+        int[] cuts = new int[cutSet.size()];
+        int cutCount = 0;
+        for (int cut : cutSet) {
+            cuts[cutCount++] = cut;
+        }
+
         Set<Set<NFANode> > states = new HashSet<>();
         List<Set<NFANode> > serials = new ArrayList<>(states);
         Map<Set<NFANode>, DFANode> linkTable = new HashMap<>();
@@ -38,91 +64,107 @@ public class NFA {
         setClosure(initialState);
         states.add(initialState);
         serials.add(initialState);
-        DFANode root = new DFANode();
-        List<String> rootFinalNames = new ArrayList<>();
-        for (NFANode node: initialState){
-            if (node.isFinal()){
-                rootFinalNames.add(node.getFinalName());
-            }
-        }
-        if (rootFinalNames.size() > 0){
-            rootFinalNames.sort(new Comparator<String>() {
-                @Override
-                public int compare(String o1, String o2) {
-                    return ordersMap.get(o1) - ordersMap.get(o2);
-                }
-            });
-            root.setFinal(true);
-            root.setFinalNames(rootFinalNames);
-            /* Lazy Initialize */
-            if (bannedStrMap != null) {
-                root.setFinalNamesToBannedStrs(bannedStrMap);
-            }
-        }
+        DFANode root = newDFANode(initialState, ordersMap, bannedCharsMap);
         linkTable.put(initialState, root);
         DFA result = new DFA(root);
         for (int i = 0; i < serials.size(); ++i) {
             Set<NFANode> nowState = serials.get(i);
-            Map<String, Set<NFANode>> transforms = new HashMap<>();
+            Map<Integer, Set<NFANode>> transforms = new TreeMap<>();
             for (NFANode node: nowState) {
-                Map<String, Set<NFANode>> singleTransform = node.getStateTransformTable();
-                for (String str:singleTransform.keySet()) {
-                    if (!str.equals("null")) {
-                        if (!transforms.containsKey(str)) {
-                            transforms.put(str, new HashSet<>());
+                for (Map.Entry<CharRange, Set<NFANode>> entry : node.getStateTransformTable().entrySet()) {
+                    int from = Arrays.binarySearch(cuts, entry.getKey().getBegin());
+                    int to = Arrays.binarySearch(cuts, entry.getKey().getEnd() + 1);
+                    for (int charClass = from; charClass < to; ++charClass) {
+                        if (!transforms.containsKey(charClass)) {
+                            transforms.put(charClass, new HashSet<>());
                         }
-                        transforms.get(str).addAll(singleTransform.get(str));
+                        transforms.get(charClass).addAll(entry.getValue());
                     }
                 }
             }
-            for (String str:transforms.keySet()) {
-                Set<NFANode> nextState = transforms.get(str);
-                setClosure(nextState);
+            //不同字符类的转移目标相同时只求一次闭包
+            Map<Set<NFANode>, Set<NFANode>> closures = new HashMap<>();
+            for (int charClass : transforms.keySet()) {
+                Set<NFANode> nextState = closures.get(transforms.get(charClass));
+                if (nextState == null) {
+                    nextState = new HashSet<>(transforms.get(charClass));
+                    setClosure(nextState);
+                    closures.put(transforms.get(charClass), nextState);
+                }
                 if (!states.contains(nextState)) {
                     states.add(nextState);
                     serials.add(nextState);
-                    DFANode newNode = new DFANode();
-                    List<String> finalNames = new ArrayList<>();
-                    for (NFANode node: nextState){
-                        if (node.isFinal()){
-                            finalNames.add(node.getFinalName());
-                        }
-                    }
-                    if (finalNames.size() > 0){
-                        finalNames.sort(new Comparator<String>() {
-                            @Override
-                            public int compare(String o1, String o2) {
-                                return ordersMap.get(o1) - ordersMap.get(o2);
-                            }
-                        });
-                        newNode.setFinal(true);
-                        newNode.setFinalNames(finalNames);
-                        /* Lazy Initialize */
-                        if (bannedStrMap != null) {
-                            newNode.setFinalNamesToBannedStrs(bannedStrMap);
-                        }
-                    }
-                    linkTable.put(nextState, newNode);
+                    linkTable.put(nextState, newDFANode(nextState, ordersMap, bannedCharsMap));
                 }
-                linkTable.get(nowState).addToTransformTable(str, linkTable.get(nextState));
+                CharRange range = new CharRange((char) cuts[charClass], (char) (cuts[charClass + 1] - 1));
+                linkTable.get(nowState).addToTransformTable(range, linkTable.get(nextState));
             }
         }
         return result;
     }
 
+    private DFANode newDFANode(Set<NFANode> state, Map<String, Integer> ordersMap, Map<String, BannedChars> bannedCharsMap) {
+        DFANode newNode = new DFANode();
+        List<String> finalNames = new ArrayList<>();
+        for (NFANode node: state){
+            if (node.isFinal()){
+                finalNames.add(node.getFinalName());
+            }
+        }
+        if (finalNames.size() > 0){
+            finalNames.sort(new Comparator<String>() {
+                @Override
+                public int compare(String o1, String o2) {
+                    return ordersMap.get(o1) - ordersMap.get(o2);
+                }
+            });
+            newNode.setFinal(true);
+            newNode.setFinalNames(finalNames);
+            //只保留这个状态能接受的终结符的限制，化简时限制不同的状态不会合并
+            for (String name : finalNames) {
+                if (bannedCharsMap.containsKey(name)) {
+                    newNode.getFinalNamesToBannedChars().put(name, bannedCharsMap.get(name));
+                }
+            }
+        }
+        return newNode;
+    }
+
     private void setClosure(Set<NFANode> nodes) {
         List<NFANode> serials = new ArrayList<>(nodes);
         for (int i = 0; i < serials.size(); ++i) {
-            Set<NFANode> nextsByNull = serials.get(i).getStateTransformTable().get("null");
-            if (nextsByNull != null) {
-                for (NFANode nextByNull: nextsByNull) {
-                    if (!nodes.contains(nextByNull)) {
-                        nodes.add(nextByNull);
-                        serials.add(nextByNull);
+            for (NFANode nextByNull: serials.get(i).getNullTransforms()) {
+                if (!nodes.contains(nextByNull)) {
+                    nodes.add(nextByNull);
+                    serials.add(nextByNull);
+                }
+            }
+        }
+    }
+
+    /* 整个字符串能否被这个NFA接受 */
+    public boolean accepts(String str) {
+        Set<NFANode> state = new HashSet<>();
+        state.add(root);
+        setClosure(state);
+        for (int i = 0; i < str.length() && !state.isEmpty(); ++i) {
+            Set<NFANode> nextState = new HashSet<>();
+            for (NFANode node : state) {
+                for (Map.Entry<CharRange, Set<NFANode>> entry : node.getStateTransformTable().entrySet()) {
+                    if (entry.getKey().contains(str.charAt(i))) {
+                        nextState.addAll(entry.getValue());
                     }
                 }
             }
+            setClosure(nextState);
+            state = nextState;
+        }
+        for (NFANode node : state) {
+            if (node.isFinal() && finalNodes.contains(node)) {
+                return true;
+            }
         }
+        return false;
     }
 
     public static NFA getJoinedNFA(Map<String, NFA> NFAMap) {
@@ -133,7 +175,7 @@ public class NFA {
                 node.setFinalName(name);
                 result.getFinalNodes().add(node);
             }
-            newNode.addToTransformTable("null", NFAMap.get(name).getRoot());
+            newNode.addNullTransform(NFAMap.get(name).getRoot());
         }
         return result;
     }
@@ -143,8 +185,7 @@ public class NFA {
         NFANode pointer = root;
         for (int i = 0; i < str.length(); ++i) {
             NFANode next = new NFANode();
-            String c = String.valueOf(str.charAt(i));
-            pointer.addToTransformTable(c, next);
+            pointer.addToTransformTable(CharRange.of(str.charAt(i)), next);
             pointer = next;
         }
         pointer.setFinal(true);
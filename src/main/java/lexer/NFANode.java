@@ -8,7 +8,9 @@ public class NFANode {
 
     private String serialCode = null;
 
-    private Map<String, Set<NFANode> > stateTransformTable;
+    private Map<CharRange, Set<NFANode> > stateTransformTable;
+
+    private Set<NFANode> nullTransforms;
 
     private String finalName = null;
 
@@ -22,10 +24,14 @@ public class NFANode {
         this.finalName = finalName;
     }
 
-    public Map<String, Set<NFANode>> getStateTransformTable() {
+    public Map<CharRange, Set<NFANode>> getStateTransformTable() {
         return stateTransformTable;
     }
 
+    public Set<NFANode> getNullTransforms() {
+        return nullTransforms;
+    }
+
     public boolean isFinal() {
         return isFinal;
     }
@@ -37,6 +43,7 @@ public class NFANode {
     public NFANode() {
         serialCode = StringGenerator.getNextCode();
         stateTransformTable = new HashMap<>();
+        nullTransforms = new HashSet<>();
     }
 
     public String getSerial() {
@@ -44,42 +51,47 @@ public class NFANode {
     }
 
     public void setTransformTableByText(Set<String> result){
-        for (String trans: stateTransformTable.keySet()) {
-            String printTrans = trans;
-            switch(trans) {
-                case "\t": printTrans = "\\\\t"; break;
-                case "\r": printTrans = "\\\\r"; break;
-                case "\n": printTrans = "\\\\n"; break;
-                case "\f": printTrans = "\\\\f"; break;
-                case "\\": printTrans = "\\\\"; break;
-            }
+        for (CharRange trans: stateTransformTable.keySet()) {
             for (NFANode end: stateTransformTable.get(trans)) {
-                String willAdd = getSerial() + " -> " + end.getSerial() + "[label=\"" + printTrans + "\"]";
-                if (!result.contains(willAdd)) {
-                    result.add(willAdd);
-                    end.setTransformTableByText(result);
-                }
+                addTransformText(result, trans.toString(), end);
             }
         }
+        for (NFANode end: nullTransforms) {
+            addTransformText(result, "null", end);
+        }
+    }
+
+    private void addTransformText(Set<String> result, String printTrans, NFANode end) {
+        String willAdd = getSerial() + " -> " + end.getSerial() + "[label=\"" + printTrans + "\"]";
+        if (!result.contains(willAdd)) {
+            result.add(willAdd);
+            end.setTransformTableByText(result);
+        }
     }
 
     public void setLinkedNodes(Set<NFANode> result){
         result.add(this);
-        for (String trans: stateTransformTable.keySet()) {
-            for (NFANode end: stateTransformTable.get(trans)) {
-                if (!result.contains(end)) {
-                    result.add(end);
-                    end.setLinkedNodes(result);
-                }
+        List<NFANode> ends = new ArrayList<>(nullTransforms);
+        for (Set<NFANode> rangeEnds: stateTransformTable.values()) {
+            ends.addAll(rangeEnds);
+        }
+        for (NFANode end: ends) {
+            if (!result.contains(end)) {
+                result.add(end);
+                end.setLinkedNodes(result);
             }
         }
     }
 
-    public void addToTransformTable(String s, NFANode next) {
-        if (!stateTransformTable.containsKey(s)) {
-            stateTransformTable.put(s, new HashSet<NFANode>());
+    public void addToTransformTable(CharRange range, NFANode next) {
+        if (!stateTransformTable.containsKey(range)) {
+            stateTransformTable.put(range, new HashSet<NFANode>());
         }
-        stateTransformTable.get(s).add(next);
+        stateTransformTable.get(range).add(next);
+    }
+
+    public void addNullTransform(NFANode next) {
+        nullTransforms.add(next);
     }
 
     @Override
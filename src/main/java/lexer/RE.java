@@ -59,10 +59,10 @@ public abstract class RE {
         if (endStatements.size() <= 0) {
             throw new PLDLAnalysisException("状态数为0或者小于0，程序失败。", null);
         }
-        AbstractSymbol beginAbstractSymbol = tableMap.get(endStatements.iterator().next()).get(cfg.getSymbolPool().getTerminator("eof")).getRegressionProduction().getBeforeAbstractSymbol();
+        AbstractSymbol beginAbstractSymbol = tableMap.get(endStatements.iterator().next()).get(AbstractTerminator.getEofTerminator()).getRegressionProduction().getBeforeAbstractSymbol();
         while(beginI != symbols.size() - 1 || !symbols.get(beginI).getAbstractSymbol().equals(beginAbstractSymbol)){
             int nowStatement = statementStack.peek();
-            Symbol nowSymbol = beginI < symbols.size() ? symbols.get(beginI) : new Terminator(cfg.getSymbolPool().getTerminator("eof"));
+            Symbol nowSymbol = beginI < symbols.size() ? symbols.get(beginI) : new Terminator(AbstractTerminator.getEofTerminator());
             Movement movement =  tableMap.get(nowStatement).get(nowSymbol.getAbstractSymbol());
             if (movement == null) {
                 throw new PLDLAnalysisException("程序分析到第 " + (beginI + 1) + " 个符号：" + nowSymbol + " 时既无法移进，也无法归约。", null);
@@ -82,7 +82,7 @@ public abstract class RE {
                         REProduction production = (REProduction) movement.getRegressionProduction();
                         List<NFA> tempNFA = new ArrayList<>();
                         List<Symbol> tempSymbol = new ArrayList<>();
-                        AbstractTerminator nullTerminator = cfg.getSymbolPool().getTerminator("null");
+                        AbstractTerminator nullTerminator = AbstractTerminator.getNullTerminator();
                         for (AbstractSymbol symbol : production.getAfterAbstractSymbols()) {
                             if (symbol != nullTerminator) {
                                 statementStack.pop();
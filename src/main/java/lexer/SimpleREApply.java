@@ -35,15 +35,15 @@ public class SimpleREApply extends RE {
                             NFANode beginNode = new NFANode();
                             NFANode endNode = new NFANode();
                             endNode.setFinal(true);
-                            beginNode.addToTransformTable("null", nodes.get(0).getRoot());
-                            beginNode.addToTransformTable("null", nodes.get(2).getRoot());
+                            beginNode.addNullTransform(nodes.get(0).getRoot());
+                            beginNode.addNullTransform(nodes.get(2).getRoot());
                             for (NFANode node : nodes.get(0).getFinalNodes()) {
                                 node.setFinal(false);
-                                node.addToTransformTable("null", endNode);
+                                node.addNullTransform(endNode);
                             }
                             for (NFANode node : nodes.get(2).getFinalNodes()) {
                                 node.setFinal(false);
-                                node.addToTransformTable("null", endNode);
+                                node.addNullTransform(endNode);
                             }
                             NFA result = new NFA(beginNode);
                             result.getFinalNodes().add(endNode);
@@ -67,14 +67,14 @@ public class SimpleREApply extends RE {
                             NFANode beginNode = new NFANode();
                             NFANode endNode = new NFANode();
                             endNode.setFinal(true);
-                            beginNode.addToTransformTable("null", nodes.get(0).getRoot());
+                            beginNode.addNullTransform(nodes.get(0).getRoot());
                             for (NFANode node : nodes.get(0).getFinalNodes()) {
                                 node.setFinal(false);
-                                node.addToTransformTable("null", nodes.get(1).getRoot());
+                                node.addNullTransform(nodes.get(1).getRoot());
                             }
                             for (NFANode node : nodes.get(1).getFinalNodes()) {
                                 node.setFinal(false);
-                                node.addToTransformTable("null", endNode);
+                                node.addNullTransform(endNode);
                             }
                             NFA result = new NFA(beginNode);
                             result.getFinalNodes().add(endNode);
@@ -106,13 +106,13 @@ public class SimpleREApply extends RE {
                             NFANode beginNode = new NFANode();
                             NFANode endNode = new NFANode();
                             endNode.setFinal(true);
-                            beginNode.addToTransformTable("null", nodes.get(0).getRoot());
+                            beginNode.addNullTransform(nodes.get(0).getRoot());
                             for (NFANode node : nodes.get(0).getFinalNodes()) {
-                                node.addToTransformTable("null", nodes.get(0).getRoot());
-                                node.addToTransformTable("null", endNode);
+                                node.addNullTransform(nodes.get(0).getRoot());
+                                node.addNullTransform(endNode);
                                 node.setFinal(false);
                             }
-                            beginNode.addToTransformTable("null", endNode);
+                            beginNode.addNullTransform(endNode);
                             NFA result = new NFA(beginNode);
                             result.getFinalNodes().add(endNode);
                             return result;
@@ -126,10 +126,10 @@ public class SimpleREApply extends RE {
                             NFANode beginNode = new NFANode();
                             NFANode endNode = new NFANode();
                             endNode.setFinal(true);
-                            beginNode.addToTransformTable("null", nodes.get(0).getRoot());
+                            beginNode.addNullTransform(nodes.get(0).getRoot());
                             for (NFANode node : nodes.get(0).getFinalNodes()) {
-                                node.addToTransformTable("null", nodes.get(0).getRoot());
-                                node.addToTransformTable("null", endNode);
+                                node.addNullTransform(nodes.get(0).getRoot());
+                                node.addNullTransform(endNode);
                                 node.setFinal(false);
                             }
                             NFA result = new NFA(beginNode);
@@ -149,9 +149,7 @@ public class SimpleREApply extends RE {
                         @Override
                         public NFA getNFANode(List<NFA> nodes, List<Symbol> childs) {
                             NFANode beginNode = new NFANode();
-                            for (char c = 1; c < 127; ++c) {
-                                beginNode.addToTransformTable(String.valueOf(c), nodes.get(0).getRoot());
-                            }
+                            beginNode.addToTransformTable(new CharRange(CharRange.MIN_CHAR, CharRange.MAX_CHAR), nodes.get(0).getRoot());
                             nodes.get(0).getRoot().setFinal(true);
                             NFA result = new NFA(beginNode);
                             result.getFinalNodes().add(nodes.get(0).getRoot());
@@ -164,7 +162,7 @@ public class SimpleREApply extends RE {
                         @Override
                         public NFA getNFANode(List<NFA> nodes, List<Symbol> childs) {
                             NFANode beginNode = new NFANode();
-                            beginNode.addToTransformTable((String) childs.get(0).getProperties().get("name"), nodes.get(0).getRoot());
+                            beginNode.addToTransformTable(CharRange.of(((String) childs.get(0).getProperties().get("name")).charAt(0)), nodes.get(0).getRoot());
                             nodes.get(0).getRoot().setFinal(true);
                             NFA result = new NFA(beginNode);
                             result.getFinalNodes().add(nodes.get(0).getRoot());
@@ -178,13 +176,8 @@ public class SimpleREApply extends RE {
                         public NFA getNFANode(List<NFA> nodes, List<Symbol> childs) {
                             String tempBegin = (String) childs.get(0).getProperties().get("name");
                             String tempEnd = (String) childs.get(2).getProperties().get("name");
-                            char beginSymbol = (char) Math.min(tempBegin.charAt(0), tempEnd.charAt(0));
-                            char endSymbol = (char) Math.max(tempBegin.charAt(0), tempEnd.charAt(0));
-
                             NFANode beginNode = new NFANode();
-                            for (char t = beginSymbol; t <= endSymbol; ++t) {
-                                beginNode.addToTransformTable(String.valueOf(t), nodes.get(0).getRoot());
-                            }
+                            beginNode.addToTransformTable(new CharRange(tempBegin.charAt(0), tempEnd.charAt(0)), nodes.get(0).getRoot());
                             nodes.get(0).getRoot().setFinal(true);
                             NFA result = new NFA(beginNode);
                             result.getFinalNodes().add(nodes.get(0).getRoot());
@@ -201,7 +194,7 @@ public class SimpleREApply extends RE {
                             beginNode.getStateTransformTable().putAll(nodes.get(1).getRoot().getStateTransformTable());
                             for (NFANode end : nodes.get(1).getFinalNodes()) {
                                 for (NFANode trueEnd : nodes.get(0).getFinalNodes()) {
-                                    end.addToTransformTable("null", trueEnd);
+                                    end.addNullTransform(trueEnd);
                                     end.setFinal(false);
                                 }
                             }
@@ -232,15 +225,10 @@ public class SimpleREApply extends RE {
                             //Assert: nodes.get(2).getRoot().getStateTransformTable().values().size() == 1
 
                             NFANode beginNode = new NFANode();
-                            Set<String> chars = new HashSet<>();
-                            for (char c = 1; c < 127; ++c) {
-                                chars.add(String.valueOf(c));
-                            }
-                            chars.removeAll(nodes.get(2).getRoot().getStateTransformTable().keySet());
                             NFANode next = nodes.get(2).getRoot().getStateTransformTable().values()
                                     .iterator().next().iterator().next();
-                            for (String s : chars) {
-                                beginNode.addToTransformTable(s, next);
+                            for (CharRange range : CharRange.complement(nodes.get(2).getRoot().getStateTransformTable().keySet())) {
+                                beginNode.addToTransformTable(range, next);
                             }
                             NFA result = new NFA(beginNode);
                             result.setFinalNodes(nodes.get(2).getFinalNodes());
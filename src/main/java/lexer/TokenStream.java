@@ -0,0 +1,154 @@
+package lexer;
+
+import exception.PLDLAnalysisException;
+import symbol.AbstractTerminator;
+import symbol.TokenBuffer;
+import symbol.TokenSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Set;
+
+/*
+    从Reader中按需读入字符并分批识别词法单元，缓冲区只保存当前正在识别的词法单元及其后已读入的字符。
+    只有留下的词法单元的词法值会复制到词法单元缓冲区的源码中，空白和注释不会复制
+ */
+public class TokenStream implements TokenSource {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192, MAX_BATCH_SIZE = 4096;
+
+    private final CompiledDFA compiledDFA;
+
+    private final AbstractTerminator[] tokenTerminators;
+
+    private final Reader reader;
+
+    private final Set<Character> emptyChars;
+
+    private final CharWindow window;
+
+    //缓冲区中 [position, limit) 是已读入但还没有识别的字符
+    private int position = 0, limit = 0;
+
+    private boolean endOfInput = false;
+
+    private int row = 1, column = 1;
+
+    public TokenStream(CompiledDFA compiledDFA, AbstractTerminator[] tokenTerminators, Reader reader, Set<Character> emptyChars) {
+        this(compiledDFA, tokenTerminators, reader, emptyChars, DEFAULT_BUFFER_SIZE);
+    }
+
+    /* bufferSize 是缓冲区的初始大小，词法单元比它长时缓冲区会扩大 */
+    TokenStream(CompiledDFA compiledDFA, AbstractTerminator[] tokenTerminators, Reader reader, Set<Character> emptyChars, int bufferSize) {
+        this.compiledDFA = compiledDFA;
+        this.tokenTerminators = tokenTerminators;
+        this.reader = reader;
+        this.emptyChars = emptyChars;
+        this.window = new CharWindow(new char[bufferSize]);
+    }
+
+    @Override
+    public boolean fill(TokenBuffer buffer) throws PLDLAnalysisException, IOException {
+        if (buffer.size() == 0) {
+            buffer.reset(tokenTerminators);
+        }
+        int first = buffer.size();
+        while (buffer.size() - first < MAX_BATCH_SIZE) {
+            if (position >= limit) {
+                if (!read()) {
+                    break;
+                }
+                continue;
+            }
+            char c = window.chars[position];
+            if (emptyChars.contains(c)) {
+                advance(1);
+                continue;
+            }
+            long match = compiledDFA.scan(window, position, limit, endOfInput);
+            if (match == CompiledDFA.NEED_MORE) {
+                //最长匹配跨过了缓冲区末尾，读入更多字符后从词法单元开头重新识别
+                read();
+                continue;
+            }
+            if (match == CompiledDFA.NO_MATCH) {
+                throw new PLDLAnalysisException("词法分析错误出现在第  " + row + " 行，第 " + column + " 列", null);
+            }
+            int length = CompiledDFA.lengthOf(match);
+            if (!compiledDFA.isSkipped(CompiledDFA.tokenOf(match))) {
+                buffer.add(CompiledDFA.tokenOf(match), buffer.appendSource(window.chars, position, length), length);
+            }
+            advance(length);
+        }
+        return buffer.size() > first;
+    }
+
+    /* 把未识别的字符移到缓冲区开头再读入，缓冲区已满时扩大一倍，返回是否还有未识别的字符 */
+    private boolean read() throws IOException {
+        if (endOfInput) {
+            return position < limit;
+        }
+        char[] chars = window.chars;
+        if (position > 0) {
+            System.arraycopy(chars, position, chars, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        else if (limit == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+            window.chars = chars;
+        }
+        int readin = reader.read(chars, limit, chars.length - limit);
+        if (readin < 0) {
+            endOfInput = true;
+            reader.close();
+        }
+        else {
+            limit += readin;
+        }
+        return position < limit;
+    }
+
+    private void advance(int length) {
+        for (int i = position; i < position + length; ++i) {
+            if (window.chars[i] == '\n') {
+                ++row;
+                column = 1;
+            }
+            else {
+                ++column;
+            }
+        }
+        position += length;
+    }
+
+    private static class CharWindow implements CharSequence {
+
+        private char[] chars;
+
+        CharWindow(char[] chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int length() {
+            return chars.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars);
+        }
+    }
+}
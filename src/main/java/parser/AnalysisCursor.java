@@ -0,0 +1,69 @@
+package parser;
+
+import symbol.AbstractSymbol;
+
+/* 在 FlatAnalysisTree 上移动的位置，遍历时只需要一个游标，不需要为每个节点创建对象 */
+public class AnalysisCursor {
+
+    private final FlatAnalysisTree tree;
+
+    private int node;
+
+    public AnalysisCursor(FlatAnalysisTree tree, int node) {
+        this.tree = tree;
+        this.node = node;
+    }
+
+    public FlatAnalysisTree getTree() {
+        return tree;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    public void moveTo(int node) {
+        this.node = node;
+    }
+
+    /* 以下移动方法在目标节点不存在时返回false，游标位置不变 */
+    public boolean moveToFirstChild() {
+        return moveToIfExists(tree.getFirstChild(node));
+    }
+
+    public boolean moveToNextSibling() {
+        return moveToIfExists(tree.getNextSibling(node));
+    }
+
+    public boolean moveToChild(int index) {
+        return moveToIfExists(tree.getChild(node, index));
+    }
+
+    private boolean moveToIfExists(int target) {
+        if (target < 0) {
+            return false;
+        }
+        node = target;
+        return true;
+    }
+
+    public boolean isLeaf() {
+        return tree.isLeaf(node);
+    }
+
+    public CFGProduction getProduction() {
+        return tree.getProduction(node);
+    }
+
+    public AbstractSymbol getAbstractSymbol() {
+        return tree.getAbstractSymbol(node);
+    }
+
+    public Object getSlot(int slot) {
+        return tree.getSlot(node, slot);
+    }
+
+    public void setSlot(int slot, Object value) {
+        tree.setSlot(node, slot, value);
+    }
+}
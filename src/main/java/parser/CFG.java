@@ -1,5 +1,6 @@
 package parser;
 
+import exception.PLDLAnalysisException;
 import exception.PLDLParsingException;
 import exception.PLDLParsingWarning;
 import symbol.*;
@@ -10,13 +11,27 @@ public class CFG {
 
     private static final String newMarkinStr = "S";
 
+    public static final int LR1 = 0x01, LALR1 = 0x02;
+
+    private int tableMode = LR1;
+
     private List<CFGProduction> CFGProductions;
 
     public void setCFGProductions(List<? extends CFGProduction> prods) {
         CFGProductions = new ArrayList<>();
         CFGProductions.addAll(prods);
+        invalidateTable();
     }
 
+    private TransformTable table = null;
+
+    private int tableBuildCount = 0, tableReuseCount = 0;
+
+    private long tableBuildNanos = 0;
+
+    //构建文法和分析表时产生的警告
+    private final List<String> warnings = new ArrayList<>();
+
     private AbstractUnterminator CFGmarkin;
     
     private SymbolPool symbolPool;
@@ -29,11 +44,11 @@ public class CFG {
         CFGProductions.addAll(productions);
         if (markinStr == null) {
             CFGmarkin = (AbstractUnterminator) CFGProductions.get(0).getBeforeAbstractSymbol();
-            PLDLParsingWarning.setLog("警告：您没有传递任何参数作为开始符号，因而自动将第一个产生式的左部符号 " + CFGmarkin.getName() + " 作为开始符号。");
+            PLDLParsingWarning.setLog(warnings, "警告：您没有传递任何参数作为开始符号，因而自动将第一个产生式的左部符号 " + CFGmarkin.getName() + " 作为开始符号。");
         } else {
             markinStr = markinStr.trim();
             if (pool.getUnterminatorsStr().contains(markinStr)) {
-                CFGmarkin = new AbstractUnterminator(markinStr);
+                CFGmarkin = pool.getUnterminator(markinStr);
             } else {
                 throw new PLDLParsingException("解析失败：开始符号不是非终结符。", null);
             }
@@ -54,11 +69,11 @@ public class CFG {
         }
         if (markinStr == null) {
             CFGmarkin = (AbstractUnterminator) CFGProductions.get(0).getBeforeAbstractSymbol();
-            PLDLParsingWarning.setLog("警告：您没有传递任何参数作为开始符号，因而自动将第一个产生式的左部符号 " + CFGmarkin.getName() + " 作为开始符号。");
+            PLDLParsingWarning.setLog(warnings, "警告：您没有传递任何参数作为开始符号，因而自动将第一个产生式的左部符号 " + CFGmarkin.getName() + " 作为开始符号。");
         } else {
             markinStr = markinStr.trim();
             if (pool.getUnterminatorsStr().contains(markinStr)) {
-                CFGmarkin = new AbstractUnterminator(markinStr);
+                CFGmarkin = pool.getUnterminator(markinStr);
             } else {
                 throw new PLDLParsingException("解析失败：开始符号不是非终结符。", null);
             }
@@ -85,7 +100,7 @@ public class CFG {
     }
 
     public List<CFGProduction> getCFGProductions() {
-        return CFGProductions;
+        return Collections.unmodifiableList(CFGProductions);
     }
 
     public AbstractUnterminator getMarkin() {
@@ -94,15 +109,16 @@ public class CFG {
 
     public void setMarkin(AbstractUnterminator markin) {
         this.CFGmarkin = markin;
+        invalidateTable();
     }
 
-    public void augmentCFG() {
+    public void augmentCFG() throws PLDLParsingException {
         if (getCFGUnterminators().contains(newMarkinStr)) {
-            PLDLParsingWarning.setLog("该文法已经进行过增广，不能再次增广。");
+            PLDLParsingWarning.setLog(warnings, "该文法已经进行过增广，不能再次增广。");
         } else {
             symbolPool.addUnterminatorStr(newMarkinStr);
             CFGProduction augmentCFGProduction = new CFGProduction();
-            AbstractUnterminator beforeSymbol = new AbstractUnterminator(newMarkinStr);
+            AbstractUnterminator beforeSymbol = symbolPool.getUnterminator(newMarkinStr);
             augmentCFGProduction.setBeforeAbstractSymbol(beforeSymbol);
             List<AbstractSymbol> afterAbstractSymbols = new ArrayList<>();
             afterAbstractSymbols.add(CFGmarkin);
@@ -110,45 +126,19 @@ public class CFG {
             augmentCFGProduction.setSerialNumber(0);
             CFGProductions.add(augmentCFGProduction);
             CFGmarkin = beforeSymbol;
+            invalidateTable();
         }
     }
 
+    /* 能否推出空串、FIRST集和FOLLOW集在 ItemGrammar 中一起用位集合迭代求出，setCanEmpty 和 setFirstSet 都会设置全部三项 */
     public void setCanEmpty() throws PLDLParsingException {
-        Map<AbstractUnterminator, Set<CFGProduction>> productions = new HashMap<>();
-        Set<AbstractSymbol> tempSetOfEmpty = new HashSet<>(), setOfEmpty = new HashSet<>();
-        AbstractSymbol nullAbstractSymbol = symbolPool.getTerminator("null");
-        tempSetOfEmpty.add(nullAbstractSymbol);
-        for (CFGProduction cfgproduction : CFGProductions) {
-            if (!productions.containsKey(cfgproduction.getBeforeAbstractSymbol())) {
-                productions.put((AbstractUnterminator) cfgproduction.getBeforeAbstractSymbol(), new HashSet<>());
-            }
-            productions.get(cfgproduction.getBeforeAbstractSymbol()).add(new CFGProduction(cfgproduction));
-        }
-        while (!tempSetOfEmpty.isEmpty()) {
-            Set<AbstractSymbol> nextTempSetOfEmpty = new HashSet<>();
-            for (AbstractUnterminator abstractUnterminator : productions.keySet()) {
-                Set<CFGProduction> everyProductions = productions.get(abstractUnterminator);
-                for (CFGProduction production : everyProductions) {
-                    List<AbstractSymbol> afterAbstractSymbols = production.getAfterAbstractSymbols();
-                    for (AbstractSymbol s : tempSetOfEmpty) {
-                        afterAbstractSymbols.remove(s);
-                    }
-                    if (afterAbstractSymbols.size() <= 0) {
-                        nextTempSetOfEmpty.add(abstractUnterminator);
-                        break;
-                    }
-                }
-            }
-            productions.keySet().removeAll(nextTempSetOfEmpty);
-            setOfEmpty.addAll(nextTempSetOfEmpty);
-            tempSetOfEmpty = nextTempSetOfEmpty;
-        }
-        for (AbstractSymbol s : setOfEmpty) {
-            ((AbstractUnterminator) s).setCanEmpty(true);
-        }
+        analyzeGrammar();
     }
 
     public void setBeginProductions() {
+        for (AbstractUnterminator abstractUnterminator : symbolPool.getUnterminators()) {
+            abstractUnterminator.setBeginProductions(null);
+        }
         for (CFGProduction cfgproduction : CFGProductions) {
             AbstractUnterminator beforeSymbol = (AbstractUnterminator) cfgproduction.getBeforeAbstractSymbol();
             if (beforeSymbol.getBeginProductions() == null) {
@@ -159,131 +149,209 @@ public class CFG {
     }
 
     public void setFirstSet() throws PLDLParsingException {
-        setCanEmpty();
-        Map<AbstractUnterminator, Set<AbstractUnterminator>> signalPasses = new HashMap<>();
-        Map<AbstractUnterminator, Set<AbstractTerminator>> firstSet = new HashMap<>();
-        Map<AbstractUnterminator, Set<AbstractTerminator>> tempFirstSet = new HashMap<>();
-        AbstractTerminator nullSymbol = symbolPool.getTerminator("null");
-        for (CFGProduction production : CFGProductions) {
-            for (AbstractSymbol s : production.getAfterAbstractSymbols()) {
-                if (s.getType() == AbstractSymbol.UNTERMINATOR) {
-                    if (!signalPasses.containsKey(s)) {
-                        signalPasses.put((AbstractUnterminator) s, new HashSet<>());
-                    }
-                    signalPasses.get(s).add((AbstractUnterminator) production.getBeforeAbstractSymbol());
-                    if (!((AbstractUnterminator) s).getCanEmpty()) {
-                        break;
-                    }
-                } else if (!s.equals(nullSymbol)) {
-                    if (!tempFirstSet.containsKey(production.getBeforeAbstractSymbol())) {
-                        tempFirstSet.put((AbstractUnterminator) production.getBeforeAbstractSymbol(), new HashSet<>());
-                    }
-                    tempFirstSet.get(production.getBeforeAbstractSymbol()).add((AbstractTerminator) s);
-                    break;
-                } else {
-                    break;
-                }
-            }
-        }
-        while (!tempFirstSet.isEmpty()) {
-            Map<AbstractUnterminator, Set<AbstractTerminator>> newTempFirstSet = new HashMap<>();
-            for (AbstractUnterminator abstractUnterminator : tempFirstSet.keySet()) {
-                if (!firstSet.containsKey(abstractUnterminator)) {
-                    firstSet.put(abstractUnterminator, new HashSet<>());
-                }
-                firstSet.get(abstractUnterminator).addAll(tempFirstSet.get(abstractUnterminator));
-                if (signalPasses.containsKey(abstractUnterminator)) {
-                    for (AbstractUnterminator signalReceiver : signalPasses.get(abstractUnterminator)) {
-                        if (!newTempFirstSet.containsKey(signalReceiver)) {
-                            newTempFirstSet.put(signalReceiver, new HashSet<>());
-                        }
-                        newTempFirstSet.get(signalReceiver).addAll(tempFirstSet.get(abstractUnterminator));
-                    }
-                }
-            }
-            tempFirstSet.clear();
-            for (AbstractUnterminator abstractUnterminator : newTempFirstSet.keySet()) {
-                if (firstSet.containsKey(abstractUnterminator)) {
-                    newTempFirstSet.get(abstractUnterminator).removeAll(firstSet.get(abstractUnterminator));
-                }
-                if (newTempFirstSet.get(abstractUnterminator).size() > 0) {
-                    tempFirstSet.put(abstractUnterminator, newTempFirstSet.get(abstractUnterminator));
-                }
-            }
-        }
+        analyzeGrammar();
+    }
+
+    private ItemGrammar analyzeGrammar() throws PLDLParsingException {
+        ItemGrammar grammar = new ItemGrammar(symbolPool, CFGProductions, CFGmarkin);
         for (AbstractUnterminator abstractUnterminator : symbolPool.getUnterminators()) {
-            if (!firstSet.containsKey(abstractUnterminator)) {
-                firstSet.put(abstractUnterminator, new HashSet<>());
-            }
-            if (abstractUnterminator.getCanEmpty()) {
-                firstSet.get(abstractUnterminator).add(nullSymbol);
-            }
-            abstractUnterminator.setFirstSet(firstSet.get(abstractUnterminator));
+            int id = abstractUnterminator.getId();
+            abstractUnterminator.setCanEmpty(grammar.getCanEmpty(id));
+            abstractUnterminator.setFirstSet(grammar.getFirstSet(id));
+            abstractUnterminator.setFollowSet(grammar.getFollowSet(id));
+        }
+        return grammar;
+    }
+
+    public int getTableMode() {
+        return tableMode;
+    }
+
+    public void setTableMode(int tableMode) {
+        if (this.tableMode != tableMode) {
+            this.tableMode = tableMode;
+            invalidateTable();
         }
     }
 
+    public void invalidateTable() {
+        table = null;
+    }
 
     public TransformTable getTable() throws PLDLParsingException {
+        if (table != null) {
+            ++tableReuseCount;
+            return table;
+        }
+        long begin = System.nanoTime();
+        table = buildTable();
+        tableBuildNanos += System.nanoTime() - begin;
+        ++tableBuildCount;
+        return table;
+    }
+
+    public String getTableReport() {
+        long buildMillis = tableBuildNanos / 1000000;
+        long savedMillis = tableBuildCount > 0 ? tableBuildNanos / tableBuildCount * tableReuseCount / 1000000 : 0;
+        return "语法分析表构建 " + tableBuildCount + " 次，用时 " + buildMillis + " 毫秒；复用 " +
+                tableReuseCount + " 次，节省约 " + savedMillis + " 毫秒。";
+    }
+
+    private TransformTable buildTable() throws PLDLParsingException {
         setBeginProductions();
-        setFirstSet();
         symbolPool.addTerminatorStr("eof");
-        List<CFGStatement> iterStatements = new ArrayList<>();
-        //Set<parser.CFGStatement> checkStatements = new HashSet<>();
-        Map<CFGStatement, Integer> checkStatements = new HashMap<>();
-
-        CFGStatement beginStatement = new CFGStatement(this);
-        for (CFGProduction production : CFGProductions) {
-            if (production.getBeforeAbstractSymbol().equals(CFGmarkin)) {
-                beginStatement.add(new PointedCFGProduction(production, symbolPool.getTerminator("eof")));
+        ItemGrammar grammar = analyzeGrammar();
+        long[] beginItems = new long[grammar.getProductionCount()];
+        int beginCount = 0;
+        for (int i = 0; i < grammar.getProductionCount(); ++i) {
+            if (grammar.getProduction(i).getBeforeAbstractSymbol().equals(CFGmarkin)) {
+                beginItems[beginCount++] = ItemGrammar.item(i, 0, AbstractTerminator.EOF_ID);
             }
         }
-        beginStatement.makeClosure();
-        iterStatements.add(beginStatement);
-        checkStatements.put(beginStatement, 0);
+        CFGStatement beginKernel = new CFGStatement(beginItems, beginCount);
+        if (tableMode == LALR1) {
+            return buildLALR1Table(grammar, beginKernel);
+        }
+
+        //项目集只按核心项目去重，闭包在处理项目集时计算，用完即丢弃
+        List<CFGStatement> kernels = new ArrayList<>();
+        Map<CFGStatement, Integer> kernelIndexes = new HashMap<>();
+        kernels.add(beginKernel);
+        kernelIndexes.put(beginKernel, 0);
 
         TransformTable result = new TransformTable(this);
+        int symbolCount = symbolPool.getSymbolCount();
+        int[] symbols = new int[symbolCount];
+        CFGStatement[] nextKernels = new CFGStatement[symbolCount];
+        boolean[] shifts = new boolean[symbolCount];
+        for (int i = 0; i < kernels.size(); ++i) {
+            long[] closure = grammar.closure(kernels.get(i).getItems());
+            int count = grammar.getNextKernels(closure, symbols, nextKernels);
+            for (int k = 0; k < count; ++k) {
+                Integer j = kernelIndexes.get(nextKernels[k]);
+                if (j == null) {
+                    j = kernels.size();
+                    kernelIndexes.put(nextKernels[k], j);
+                    kernels.add(nextKernels[k]);
+                }
+                result.add(i, symbolPool.getSymbol(symbols[k]), j);
+                shifts[symbols[k]] = true;
+                nextKernels[k] = null;
+            }
+            addRegressions(result, grammar, i, closure, shifts, false);
+            for (int k = 0; k < count; ++k) {
+                shifts[symbols[k]] = false;
+            }
+        }
+        return result;
+    }
 
-        for (int i = 0; i < iterStatements.size(); ++i) {
-            CFGStatement nowStatement = iterStatements.get(i);
-            Set<PointedCFGProduction> pointedProductions = nowStatement.getPointedProductions();
-            Map<AbstractSymbol, Set<PointedCFGProduction>> classifiedPointedProductions = new HashMap<>();
-            for (PointedCFGProduction pointedProduction : pointedProductions) {
-                if (!pointedProduction.finished()) {
-                    if (!classifiedPointedProductions.containsKey(pointedProduction.getNextSymbol())) {
-                        classifiedPointedProductions.put(pointedProduction.getNextSymbol(), new HashSet<>());
-                    }
-                    classifiedPointedProductions.get(pointedProduction.getNextSymbol()).add(pointedProduction);
-                } else {
-                    if (!classifiedPointedProductions.containsKey(symbolPool.getTerminator("null"))) {
-                        classifiedPointedProductions.put(symbolPool.getTerminator("null"), new HashSet<>());
-                    }
-                    classifiedPointedProductions.get(symbolPool.getTerminator("null")).add(pointedProduction);
+    private TransformTable buildLALR1Table(ItemGrammar grammar, CFGStatement beginKernel) throws PLDLParsingException {
+        List<CFGStatement> kernels = new ArrayList<>();
+        List<long[]> closures = new ArrayList<>();
+        List<int[]> gotoSymbols = new ArrayList<>(), gotoStatements = new ArrayList<>();
+        Map<CFGStatement, Integer> coreIndexes = new HashMap<>();
+        Deque<Integer> willProceed = new ArrayDeque<>();
+        Set<Integer> willProceedSet = new HashSet<>();
+
+        kernels.add(beginKernel);
+        closures.add(null);
+        gotoSymbols.add(null);
+        gotoStatements.add(null);
+        coreIndexes.put(beginKernel.getCore(), 0);
+        willProceed.add(0);
+        willProceedSet.add(0);
+
+        int symbolCount = symbolPool.getSymbolCount();
+        int[] symbols = new int[symbolCount];
+        CFGStatement[] nextKernels = new CFGStatement[symbolCount];
+        //同心项目集直接合并展望符，展望符有增加的项目集重新计算闭包并传播到后继项目集
+        while (!willProceed.isEmpty()) {
+            int i = willProceed.poll();
+            willProceedSet.remove(i);
+            long[] closure = grammar.closure(kernels.get(i).getItems());
+            closures.set(i, closure);
+            int count = grammar.getNextKernels(closure, symbols, nextKernels);
+            int[] statements = new int[count];
+            for (int k = 0; k < count; ++k) {
+                CFGStatement kernel = nextKernels[k];
+                CFGStatement core = kernel.getCore();
+                Integer j = coreIndexes.get(core);
+                if (j == null) {
+                    j = kernels.size();
+                    coreIndexes.put(core, j);
+                    kernels.add(kernel);
+                    closures.add(null);
+                    gotoSymbols.add(null);
+                    gotoStatements.add(null);
+                    willProceed.add(j);
+                    willProceedSet.add(j);
+                } else if (kernels.get(j).addAll(kernel) && willProceedSet.add(j)) {
+                    willProceed.add(j);
                 }
+                statements[k] = j;
+                nextKernels[k] = null;
+            }
+            gotoSymbols.set(i, Arrays.copyOf(symbols, count));
+            gotoStatements.set(i, statements);
+        }
+
+        TransformTable result = new TransformTable(this);
+        boolean[] shifts = new boolean[symbolCount];
+        for (int i = 0; i < kernels.size(); ++i) {
+            int[] nextSymbols = gotoSymbols.get(i), nextStatements = gotoStatements.get(i);
+            for (int k = 0; k < nextSymbols.length; ++k) {
+                result.add(i, symbolPool.getSymbol(nextSymbols[k]), nextStatements[k]);
+                shifts[nextSymbols[k]] = true;
             }
-            for (AbstractSymbol s : classifiedPointedProductions.keySet()) {
-                if (s.equals(symbolPool.getTerminator("null"))) {
-                    for (PointedCFGProduction pointedProduction : classifiedPointedProductions.get(s)) {
-                        result.add(i, pointedProduction.getOutlookAbstractTerminator(), pointedProduction.getProduction());
-                        if (pointedProduction.getOutlookAbstractTerminator().equals(symbolPool.getTerminator("eof"))
-                                && pointedProduction.getProduction().getBeforeAbstractSymbol().equals(CFGmarkin)){
-                            result.addEndStatement(i);
-                        }
+            addRegressions(result, grammar, i, closures.get(i), shifts, true);
+            for (int nextSymbol : nextSymbols) {
+                shifts[nextSymbol] = false;
+            }
+        }
+        return result;
+    }
+
+    /* 移进-归约冲突优先移进，归约-归约冲突使用序号较小的产生式。shifts[符号编号] 表示这个符号上有移进或转移 */
+    private void addRegressions(TransformTable result, ItemGrammar grammar, int i, long[] closure,
+                                boolean[] shifts, boolean mergedStatement) {
+        Map<Integer, CFGProduction> regressions = new HashMap<>();
+        for (long item : closure) {
+            int outlookId = ItemGrammar.outlookOf(item);
+            if (grammar.finished(item) && !shifts[outlookId]) {
+                CFGProduction production = grammar.getProduction(ItemGrammar.productionOf(item));
+                CFGProduction another = regressions.get(outlookId);
+                if (another != null && another != production) {
+                    if (mergedStatement) {
+                        PLDLParsingWarning.setLog(warnings, "LALR(1)合并同心项目集后，状态 " + i + " 在展望符 " + symbolPool.getSymbol(outlookId).getName() +
+                                " 下产生归约-归约冲突：" + another + " 与 " + production +
+                                "，将使用序号较小的产生式归约。如需避免，请使用LR(1)分析。");
                     }
-                } else {
-                    CFGStatement statement = new CFGStatement(this);
-                    for (PointedCFGProduction pointedProduction : classifiedPointedProductions.get(s)) {
-                        statement.add(pointedProduction.next());
+                    else {
+                        PLDLParsingWarning.setLog(warnings, "状态 " + i + " 在展望符 " + symbolPool.getSymbol(outlookId).getName() +
+                                " 下产生归约-归约冲突：" + another + " 与 " + production +
+                                "，文法不是LR(1)文法，将使用序号较小的产生式归约。");
                     }
-                    statement.makeClosure();
-                    if (!checkStatements.containsKey(statement)) {
-                        checkStatements.put(statement, iterStatements.size());
-                        iterStatements.add(statement);
+                    if (another.getSerialNumber() < production.getSerialNumber()) {
+                        continue;
                     }
-                    result.add(i, s, checkStatements.get(statement));
                 }
+                regressions.put(outlookId, production);
             }
         }
-        //System.out.println(iterStatements.size());
+        for (Map.Entry<Integer, CFGProduction> regression : regressions.entrySet()) {
+            AbstractSymbol outlook = symbolPool.getSymbol(regression.getKey());
+            CFGProduction production = regression.getValue();
+            result.add(i, outlook, production);
+            if (outlook == AbstractTerminator.getEofTerminator() && production.getBeforeAbstractSymbol() == CFGmarkin) {
+                result.addEndStatement(i);
+            }
+        }
+    }
+
+    public List<String> getWarnings() {
+        List<String> result = new ArrayList<>(symbolPool.getWarnings());
+        result.addAll(warnings);
         return result;
     }
 
@@ -291,11 +359,23 @@ public class CFG {
         return symbolPool;
     }
 
+    /* 词法分析器绑定了符号池时，符号已经是符号池中的终结符，不需要再按名字查找 */
+    private AbstractTerminator getRealAbstractTerminator(Symbol symbol) throws PLDLParsingException {
+        return getRealAbstractTerminator(symbol.getAbstractSymbol());
+    }
+
+    private AbstractTerminator getRealAbstractTerminator(AbstractSymbol abstractSymbol) throws PLDLParsingException {
+        if (symbolPool.contains(abstractSymbol)) {
+            return (AbstractTerminator) abstractSymbol;
+        }
+        return symbolPool.getTerminator(abstractSymbol.getName());
+    }
+
     public List<Symbol> revertToStdAbstractSymbols(List<Symbol> symbols) throws PLDLParsingException {
         //Deprecated: case it was implemented in eraseSymbols
         List<Symbol> result = new ArrayList<>();
         for (Symbol symbol: symbols){
-            AbstractTerminator realAbstractTerminator = symbolPool.getTerminator(symbol.getAbstractSymbol().getName());
+            AbstractTerminator realAbstractTerminator = getRealAbstractTerminator(symbol);
             symbol.setAbstractSymbol(realAbstractTerminator);
             result.add(symbol);
         }
@@ -305,11 +385,11 @@ public class CFG {
     public List<Symbol> eraseComments(List<Symbol> symbols) throws PLDLParsingException {
         List<Symbol> result = new ArrayList<>();
         for (Symbol symbol: symbols){
-            AbstractTerminator realAbstractTerminator = symbolPool.getTerminator(symbol.getAbstractSymbol().getName());
+            AbstractTerminator realAbstractTerminator = getRealAbstractTerminator(symbol);
             if (!realAbstractTerminator.getIsComment()){
                 result.add(symbol);
             }
         }
         return result;
     }
-}
\ No newline at end of file
+}
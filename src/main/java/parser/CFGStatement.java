@@ -1,113 +1,95 @@
 package parser;
 
-import exception.PLDLParsingException;
-import symbol.AbstractSymbol;
-import symbol.AbstractTerminator;
-import symbol.AbstractUnterminator;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
 
+/* 项目集只由排好序的核心项目确定，闭包在需要时由 ItemGrammar.closure 计算，不保存在项目集中 */
 public class CFGStatement {
 
-    private Set<PointedCFGProduction> pointedProductions;
-    
-    private CFG cfg;
+    private long[] items;
 
-    CFGStatement(CFG cfg) {
-        this.cfg = cfg;
-        pointedProductions = new HashSet<>();
-    }
+    private int hash;
 
-    void add(PointedCFGProduction pointedProduction) {
-        pointedProductions.add(pointedProduction);
+    CFGStatement(long[] items, int length) {
+        long[] sortedItems = Arrays.copyOf(items, length);
+        Arrays.sort(sortedItems);
+        int count = 0;
+        for (int i = 0; i < length; ++i) {
+            if (count == 0 || sortedItems[count - 1] != sortedItems[i]) {
+                sortedItems[count++] = sortedItems[i];
+            }
+        }
+        this.items = count == length ? sortedItems : Arrays.copyOf(sortedItems, count);
+        this.hash = Arrays.hashCode(this.items);
     }
 
-    @Override
-    public boolean equals(Object obj) {
-        CFGStatement argument = (CFGStatement) obj;
-        return pointedProductions.size() == argument.pointedProductions.size() &&
-                pointedProductions.containsAll(argument.pointedProductions);
+    long[] getItems() {
+        return items;
     }
 
-    @Override
-    public int hashCode() {
-        int hash = 0;
-        for (PointedCFGProduction pointedProduction : pointedProductions) {
-            hash ^= pointedProduction.hashCode();
+    /* 去掉展望符之后的LR(0)项目集，用于LALR(1)合并同心项目集 */
+    CFGStatement getCore() {
+        long[] coreItems = new long[items.length];
+        for (int i = 0; i < items.length; ++i) {
+            coreItems[i] = ItemGrammar.coreOf(items[i]);
         }
-        return hash;
+        return new CFGStatement(coreItems, coreItems.length);
     }
 
-    Set<PointedCFGProduction> getPointedProductions() {
-        return pointedProductions;
-    }
-
-    private Set<AbstractTerminator> getFirstsOfSymbolList(List<AbstractSymbol> abstractSymbols) {
-        Set<AbstractTerminator> result = new HashSet<>();
-        for (AbstractSymbol abstractSymbol : abstractSymbols) {
-            if (abstractSymbol.getType() == AbstractSymbol.UNTERMINATOR) {
-                result.addAll(((AbstractUnterminator) abstractSymbol).getFirstSet());
-                if (!((AbstractUnterminator) abstractSymbol).getCanEmpty()) {
-                    break;
-                }
-            } else {
-                result.add((AbstractTerminator) abstractSymbol);
-                if (!abstractSymbol.getName().equals("null")) {
-                    break;
-                }
+    /* 合并另一个项目集的项目，返回是否有新增的项目。作为散列表的键时不能调用 */
+    boolean addAll(CFGStatement another) {
+        long[] merged = new long[items.length + another.items.length];
+        int i = 0, j = 0, count = 0;
+        while (i < items.length || j < another.items.length) {
+            if (j >= another.items.length || i < items.length && items[i] < another.items[j]) {
+                merged[count++] = items[i++];
+            }
+            else if (i >= items.length || another.items[j] < items[i]) {
+                merged[count++] = another.items[j++];
+            }
+            else {
+                merged[count++] = items[i++];
+                ++j;
             }
         }
-        try {
-            result.remove(cfg.getSymbolPool().getTerminator("null"));
-        } catch (PLDLParsingException e) {
-            e.printStackTrace();
+        if (count == items.length) {
+            return false;
         }
-        return result;
+        items = Arrays.copyOf(merged, count);
+        hash = Arrays.hashCode(items);
+        return true;
     }
 
-    public void makeClosure() {
-        Set<PointedCFGProduction> checkPointedProductions = pointedProductions;
-        List<PointedCFGProduction> iterPointedProductions = new ArrayList<>(pointedProductions);
-        for (int i = 0; i < iterPointedProductions.size(); ++i) {
-            PointedCFGProduction pointedProduction = iterPointedProductions.get(i);
-            if (!pointedProduction.finished()) {
-                AbstractSymbol abstractSymbol = pointedProduction.getNextSymbol();
-                if (abstractSymbol.getType() == AbstractSymbol.UNTERMINATOR) {
-                    List<AbstractSymbol> outlookAbstractSymbols = new ArrayList<>();
-                    for (int j = pointedProduction.getPointer() + 1;
-                         j < pointedProduction.getProduction().getAfterAbstractSymbols().size();
-                         ++j) {
-                        outlookAbstractSymbols.add(pointedProduction.getProduction().getAfterAbstractSymbols().get(j));
-                    }
-                    outlookAbstractSymbols.add(pointedProduction.getOutlookAbstractTerminator());
-                    Set<AbstractTerminator> firstsOfList = getFirstsOfSymbolList(outlookAbstractSymbols);
-                    for (CFGProduction production : ((AbstractUnterminator) abstractSymbol).getBeginProductions()) {
-                        for (AbstractTerminator outlookSymbol : firstsOfList) {
-                            PointedCFGProduction generatedProduction = new PointedCFGProduction(production, outlookSymbol);
-                            if (!checkPointedProductions.contains(generatedProduction)) {
-                                checkPointedProductions.add(generatedProduction);
-                                iterPointedProductions.add(generatedProduction);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        pointedProductions = checkPointedProductions;
+    @Override
+    public boolean equals(Object obj) {
+        CFGStatement argument = (CFGStatement) obj;
+        return hash == argument.hash && Arrays.equals(items, argument.items);
     }
 
     @Override
-    public String toString() {
+    public int hashCode() {
+        return hash;
+    }
+
+    String toString(ItemGrammar grammar) {
         StringBuilder result = new StringBuilder();
         result.append("-------\n");
-        for (PointedCFGProduction pointedProduction : pointedProductions) {
-            result.append(pointedProduction.toString());
-            result.append("\n");
+        for (long item : items) {
+            CFGProduction production = grammar.getProduction(ItemGrammar.productionOf(item));
+            int pointer = ItemGrammar.pointerOf(item);
+            result.append(production.getBeforeAbstractSymbol());
+            result.append(" ->");
+            for (int i = 0; i < production.getAfterAbstractSymbols().size(); ++i) {
+                result.append(i == pointer ? " · " : " ");
+                result.append(production.getAfterAbstractSymbols().get(i));
+            }
+            if (pointer >= production.getAfterAbstractSymbols().size()) {
+                result.append(" ·");
+            }
+            result.append("（展望符：");
+            result.append(grammar.getSymbolPool().getSymbol(ItemGrammar.outlookOf(item)));
+            result.append("）\n");
         }
         result.append("-------");
         return result.toString();
     }
-}
\ No newline at end of file
+}
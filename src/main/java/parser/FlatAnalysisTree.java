@@ -0,0 +1,259 @@
+package parser;
+
+import symbol.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    语法分析得到的分析树。节点是从0开始的编号，节点的产生式、第一个子节点、下一个兄弟节点和对应的词法单元分别保存在四个int数组中，
+    属性按节点编号保存在旁表中，只有设置过属性的节点才占用属性数组。子节点总是先于父节点加入，因此父节点的编号总是大于子节点
+ */
+public class FlatAnalysisTree {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private static final Object[] EMPTY_SLOTS = new Object[0];
+
+    //节点的产生式编号是这个数组的下标
+    private final CFGProduction[] productions;
+
+    private final TokenBuffer tokens;
+
+    //每种词法单元在符号池中的终结符，由语法分析器设置
+    private AbstractTerminator[] terminators = new AbstractTerminator[0];
+
+    //产生式编号为-1的是叶子节点；叶子节点的词法单元为-1表示它不是从源码中识别出来的（如动作语句中的变量）
+    private int[] nodeProductions, firstChildren, nextSiblings, nodeTokens;
+
+    //属性名与槽位的对应关系，第一次设置节点属性时按它的大小分配属性数组
+    private final Attributes slotNames;
+
+    private Object[][] attributes;
+
+    private int size = 0, root = -1;
+
+    FlatAnalysisTree(CFGProduction[] productions, TokenBuffer tokens, Attributes slotNames) {
+        this.productions = productions;
+        this.tokens = tokens;
+        this.slotNames = slotNames;
+        nodeProductions = new int[DEFAULT_CAPACITY];
+        firstChildren = new int[DEFAULT_CAPACITY];
+        nextSiblings = new int[DEFAULT_CAPACITY];
+        nodeTokens = new int[DEFAULT_CAPACITY];
+        attributes = new Object[DEFAULT_CAPACITY][];
+    }
+
+    void setTerminators(AbstractTerminator[] terminators) {
+        this.terminators = terminators;
+    }
+
+    private int addNode(int production, int firstChild, int token) {
+        if (size == nodeProductions.length) {
+            int capacity = Math.max(size * 2, DEFAULT_CAPACITY);
+            nodeProductions = Arrays.copyOf(nodeProductions, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            nodeTokens = Arrays.copyOf(nodeTokens, capacity);
+            attributes = Arrays.copyOf(attributes, capacity);
+        }
+        nodeProductions[size] = production;
+        firstChildren[size] = firstChild;
+        nextSiblings[size] = -1;
+        nodeTokens[size] = token;
+        return size++;
+    }
+
+    int addLeaf(int token) {
+        return addNode(-1, -1, token);
+    }
+
+    /* children[from..to] 依次成为新节点的子节点 */
+    int addNode(int production, int[] children, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            nextSiblings[children[i]] = children[i + 1];
+        }
+        return addNode(production, from <= to ? children[from] : -1, -1);
+    }
+
+    /* 不属于分析树的叶子节点，用于保存动作语句中的变量 */
+    public int newLeaf() {
+        return addNode(-1, -1, -1);
+    }
+
+    /* 分析结束时去掉数组多余的容量 */
+    void setRoot(int root) {
+        this.root = root;
+        nodeProductions = Arrays.copyOf(nodeProductions, size);
+        firstChildren = Arrays.copyOf(firstChildren, size);
+        nextSiblings = Arrays.copyOf(nextSiblings, size);
+        nodeTokens = Arrays.copyOf(nodeTokens, size);
+        attributes = Arrays.copyOf(attributes, size);
+        tokens.trimToSize();
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public AnalysisCursor getCursor() {
+        return new AnalysisCursor(this, root);
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    public boolean isLeaf(int node) {
+        return nodeProductions[node] < 0;
+    }
+
+    public CFGProduction getProduction(int node) {
+        return nodeProductions[node] < 0 ? null : productions[nodeProductions[node]];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /* 第index个子节点，不存在时返回-1 */
+    public int getChild(int node, int index) {
+        if (index < 0) {
+            return -1;
+        }
+        int child = firstChildren[node];
+        for (int i = 0; i < index && child >= 0; ++i) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    public int getToken(int node) {
+        return nodeTokens[node];
+    }
+
+    public AbstractSymbol getAbstractSymbol(int node) {
+        if (nodeProductions[node] >= 0) {
+            return productions[nodeProductions[node]].getBeforeAbstractSymbol();
+        }
+        return nodeTokens[node] >= 0 ? terminators[tokens.getKind(nodeTokens[node])] : null;
+    }
+
+    /* 叶子节点没有设置过词法值时，从源码中取出词法值 */
+    public Object getSlot(int node, int slot) {
+        Object[] slots = attributes[node];
+        Object result = slots != null && slot < slots.length ? slots[slot] : null;
+        if (result == null && slot == Attributes.VAL && nodeTokens[node] >= 0) {
+            result = tokens.getLexeme(nodeTokens[node]);
+        }
+        return result;
+    }
+
+    public void setSlot(int node, int slot, Object value) {
+        Object[] slots = attributes[node] != null ? attributes[node] : EMPTY_SLOTS;
+        if (slot >= slots.length) {
+            if (value == null) {
+                return;
+            }
+            slots = Arrays.copyOf(slots, Math.max(slot + 1, slotNames.size()));
+            attributes[node] = slots;
+        }
+        slots[slot] = value;
+    }
+
+    /* 节点对应的符号，属性是复制出来的，修改它不会影响分析树。用于输出和转换为 AnalysisTree */
+    public Symbol getSymbol(int node) {
+        Symbol result;
+        if (nodeProductions[node] >= 0) {
+            result = new Unterminator((AbstractUnterminator) getAbstractSymbol(node));
+        }
+        else if (nodeTokens[node] >= 0) {
+            int token = nodeTokens[node];
+            result = new Terminator((AbstractTerminator) getAbstractSymbol(node), tokens.getSource(),
+                    tokens.getStart(token), tokens.getStart(token) + tokens.getLength(token));
+        }
+        else {
+            result = new Terminator(null);
+        }
+        result.setAttributes(slotNames);
+        Object[] slots = attributes[node];
+        if (slots != null) {
+            for (int i = 0; i < slots.length; ++i) {
+                if (slots[i] != null) {
+                    result.setSlot(i, slots[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /* 转换为以对象表示的分析树，用于动作语句等需要保存和修改的小分析树 */
+    public AnalysisTree toAnalysisTree() {
+        AnalysisTree result = new AnalysisTree();
+        if (root < 0) {
+            return result;
+        }
+        //子节点的编号总是小于父节点，按编号顺序创建时子节点已经创建好了
+        AnalysisNode[] nodes = new AnalysisNode[root + 1];
+        for (int node = 0; node <= root; ++node) {
+            nodes[node] = new AnalysisNode(getSymbol(node));
+            if (nodeProductions[node] >= 0) {
+                nodes[node].setProduction(getProduction(node));
+                List<AnalysisNode> children = new ArrayList<>();
+                for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                    nodes[child].setParent(nodes[node]);
+                    children.add(nodes[child]);
+                }
+                nodes[node].setChildren(children);
+            }
+        }
+        result.setRoot(nodes[root]);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        if (root < 0) {
+            return result.toString();
+        }
+        int[] nodeStack = new int[64], depthStack = new int[64];
+        int top = 0;
+        nodeStack[0] = root;
+        depthStack[0] = 0;
+        while (top >= 0) {
+            int node = nodeStack[top], depth = depthStack[top--];
+            result.append("|");
+            for (int i = 0; i < depth; ++i) {
+                result.append("-");
+            }
+            result.append(getAbstractSymbol(node).getName());
+            result.append("\n");
+            int childCount = 0;
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                ++childCount;
+            }
+            if (top + childCount + 1 >= nodeStack.length) {
+                nodeStack = Arrays.copyOf(nodeStack, (top + childCount + 1) * 2);
+                depthStack = Arrays.copyOf(depthStack, nodeStack.length);
+            }
+            //子节点倒序入栈，先输出第一个子节点
+            int index = top + childCount;
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                nodeStack[index] = child;
+                depthStack[index--] = depth + 1;
+            }
+            top += childCount;
+        }
+        return result.toString();
+    }
+}
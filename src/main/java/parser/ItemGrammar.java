@@ -0,0 +1,459 @@
+package parser;
+
+import exception.PLDLParsingException;
+import symbol.AbstractSymbol;
+import symbol.AbstractTerminator;
+import symbol.AbstractUnterminator;
+import symbol.SymbolPool;
+import symbol.TerminatorSet;
+import util.BitArrays;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/*
+    构建分析表时使用的文法形式，产生式和符号都用编号表示，符号集合都是以符号编号为下标的 long[] 位集合（见 BitArrays）。
+    一个LR(1)项目打包为一个long：高24位是产生式编号，中间16位是圆点位置，低24位是展望符的符号编号
+ */
+class ItemGrammar {
+
+    private static final int POINTER_SHIFT = 24, PRODUCTION_SHIFT = 40;
+
+    private static final long OUTLOOK_MASK = (1L << POINTER_SHIFT) - 1, POINTER_MASK = (1L << 16) - 1;
+
+    private final SymbolPool pool;
+
+    private final CFGProduction[] productions;
+
+    //产生式右部的符号编号，空产生式的右部为空数组
+    private final int[][] rights;
+
+    private final int[] lefts;
+
+    //以编号为下标：是否为非终结符、以它为左部的产生式、能否推出空串、FIRST集（不含空串）、FOLLOW集
+    private final boolean[] unterminators;
+
+    private final int[][] beginProductions;
+
+    private final boolean[] canEmpty;
+
+    private final long[][] firstSets, followSets;
+
+    //suffixFirsts[p][i] 是产生式p右部从第i个符号开始的符号串的FIRST集，suffixCanEmpty[p][i] 表示它能否推出空串
+    private final long[][][] suffixFirsts;
+
+    private final boolean[][] suffixCanEmpty;
+
+    //以非终结符编号为下标，在第一次用到时计算
+    private final ClosureTemplate[] templates;
+
+    //closure 中每个产生式累积的展望符，以及这次闭包是否已经用到这个产生式
+    private final long[][] closureOutlooks;
+
+    private final boolean[] closureTouched;
+
+    //getNextKernels 中按符号分组用的临时数组
+    private final int[] nextCounts;
+
+    private final long[][] nextItems;
+
+    ItemGrammar(SymbolPool pool, List<CFGProduction> productionList, AbstractUnterminator markin) throws PLDLParsingException {
+        this.pool = pool;
+        int symbolCount = pool.getSymbolCount();
+        productions = productionList.toArray(new CFGProduction[0]);
+        rights = new int[productions.length][];
+        lefts = new int[productions.length];
+        unterminators = new boolean[symbolCount];
+        nextCounts = new int[symbolCount];
+        nextItems = new long[symbolCount][];
+        int[] beginProductionCounts = new int[symbolCount];
+        for (int i = 0; i < productions.length; ++i) {
+            lefts[i] = getId(productions[i].getBeforeAbstractSymbol());
+            ++beginProductionCounts[lefts[i]];
+            List<AbstractSymbol> afterAbstractSymbols = productions[i].getAfterAbstractSymbols();
+            int[] right = new int[afterAbstractSymbols.size()];
+            int length = 0;
+            for (AbstractSymbol symbol : afterAbstractSymbols) {
+                if (symbol != AbstractTerminator.getNullTerminator()) {
+                    right[length++] = getId(symbol);
+                }
+            }
+            rights[i] = Arrays.copyOf(right, length);
+        }
+        beginProductions = new int[symbolCount][];
+        for (int id = 0; id < symbolCount; ++id) {
+            beginProductions[id] = new int[beginProductionCounts[id]];
+            beginProductionCounts[id] = 0;
+            unterminators[id] = pool.getSymbol(id).getType() == AbstractSymbol.UNTERMINATOR;
+        }
+        for (int i = 0; i < productions.length; ++i) {
+            beginProductions[lefts[i]][beginProductionCounts[lefts[i]]++] = i;
+        }
+        canEmpty = new boolean[symbolCount];
+        firstSets = new long[symbolCount][];
+        followSets = new long[symbolCount][];
+        for (int id = 0; id < symbolCount; ++id) {
+            firstSets[id] = BitArrays.create(symbolCount);
+            followSets[id] = BitArrays.create(symbolCount);
+        }
+        setCanEmpty();
+        setFirstSets();
+        suffixFirsts = new long[productions.length][][];
+        suffixCanEmpty = new boolean[productions.length][];
+        for (int i = 0; i < productions.length; ++i) {
+            int[] right = rights[i];
+            suffixFirsts[i] = new long[right.length + 1][];
+            suffixCanEmpty[i] = new boolean[right.length + 1];
+            suffixFirsts[i][right.length] = BitArrays.create(symbolCount);
+            suffixCanEmpty[i][right.length] = true;
+            for (int j = right.length - 1; j >= 0; --j) {
+                long[] first = BitArrays.create(symbolCount);
+                if (unterminators[right[j]]) {
+                    BitArrays.or(first, firstSets[right[j]]);
+                    if (canEmpty[right[j]]) {
+                        BitArrays.or(first, suffixFirsts[i][j + 1]);
+                        suffixCanEmpty[i][j] = suffixCanEmpty[i][j + 1];
+                    }
+                }
+                else {
+                    BitArrays.set(first, right[j]);
+                }
+                suffixFirsts[i][j] = first;
+            }
+        }
+        if (markin != null) {
+            setFollowSets(getId(markin));
+        }
+        templates = new ClosureTemplate[symbolCount];
+        closureOutlooks = new long[productions.length][];
+        closureTouched = new boolean[productions.length];
+    }
+
+    /* 以下三个不动点迭代都是重复扫描所有产生式，直到集合不再变化 */
+    private void setCanEmpty() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < productions.length; ++i) {
+                if (canEmpty[lefts[i]]) {
+                    continue;
+                }
+                boolean empty = true;
+                for (int symbol : rights[i]) {
+                    if (!canEmpty[symbol]) {
+                        empty = false;
+                        break;
+                    }
+                }
+                if (empty) {
+                    canEmpty[lefts[i]] = true;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private void setFirstSets() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < productions.length; ++i) {
+                long[] first = firstSets[lefts[i]];
+                for (int symbol : rights[i]) {
+                    if (!unterminators[symbol]) {
+                        if (!BitArrays.get(first, symbol)) {
+                            BitArrays.set(first, symbol);
+                            changed = true;
+                        }
+                        break;
+                    }
+                    changed |= BitArrays.or(first, firstSets[symbol]);
+                    if (!canEmpty[symbol]) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    //开始符号的FOLLOW集包含eof；A -> αBβ 中 FIRST(β) 属于 FOLLOW(B)，β能推出空串时 FOLLOW(A) 也属于 FOLLOW(B)
+    private void setFollowSets(int markin) {
+        BitArrays.set(followSets[markin], AbstractTerminator.EOF_ID);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < productions.length; ++i) {
+                int[] right = rights[i];
+                for (int j = 0; j < right.length; ++j) {
+                    if (unterminators[right[j]]) {
+                        changed |= BitArrays.or(followSets[right[j]], suffixFirsts[i][j + 1]);
+                        if (suffixCanEmpty[i][j + 1]) {
+                            changed |= BitArrays.or(followSets[right[j]], followSets[lefts[i]]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    boolean getCanEmpty(int unterminator) {
+        return canEmpty[unterminator];
+    }
+
+    /* 与原来的 AbstractUnterminator.getFirstSet 一致，能推出空串时包含null */
+    TerminatorSet getFirstSet(int unterminator) {
+        long[] first = firstSets[unterminator].clone();
+        if (canEmpty[unterminator]) {
+            BitArrays.set(first, AbstractTerminator.NULL_ID);
+        }
+        return new TerminatorSet(pool, first);
+    }
+
+    TerminatorSet getFollowSet(int unterminator) {
+        return new TerminatorSet(pool, followSets[unterminator]);
+    }
+
+    private int getId(AbstractSymbol symbol) throws PLDLParsingException {
+        if (!pool.contains(symbol)) {
+            throw new PLDLParsingException("产生式中的符号 " + symbol.getName() + " 不在文法的符号池中。", null);
+        }
+        return symbol.getId();
+    }
+
+    static long item(int production, int pointer, int outlook) {
+        return (long) production << PRODUCTION_SHIFT | (long) pointer << POINTER_SHIFT | outlook;
+    }
+
+    static int productionOf(long item) {
+        return (int) (item >>> PRODUCTION_SHIFT);
+    }
+
+    static int pointerOf(long item) {
+        return (int) (item >>> POINTER_SHIFT & POINTER_MASK);
+    }
+
+    static int outlookOf(long item) {
+        return (int) (item & OUTLOOK_MASK);
+    }
+
+    //去掉展望符后的LR(0)项目
+    static long coreOf(long item) {
+        return item & ~OUTLOOK_MASK;
+    }
+
+    static long next(long item) {
+        return item + (1L << POINTER_SHIFT);
+    }
+
+    SymbolPool getSymbolPool() {
+        return pool;
+    }
+
+    CFGProduction getProduction(int production) {
+        return productions[production];
+    }
+
+    int getProductionCount() {
+        return productions.length;
+    }
+
+    int getLeft(int production) {
+        return lefts[production];
+    }
+
+    boolean finished(long item) {
+        return pointerOf(item) >= rights[productionOf(item)].length;
+    }
+
+    //圆点后面的符号编号，调用前需要确认项目没有结束
+    int getNextSymbol(long item) {
+        return rights[productionOf(item)][pointerOf(item)];
+    }
+
+    /*
+        项目集闭包，结果的开头是圆点不在最左边的核心项目，其余项目没有顺序。
+        非终结符展开得到的项目及其展望符由闭包模板给出，每个产生式的展望符先合并再输出，因此不需要对项目去重
+     */
+    long[] closure(long[] kernel) {
+        int[] touchedProductions = new int[productions.length];
+        int touchedCount = 0;
+        long[] items = new long[kernel.length];
+        int count = 0;
+        for (long item : kernel) {
+            int production = productionOf(item), pointer = pointerOf(item), outlook = outlookOf(item);
+            if (pointer > 0) {
+                items[count++] = item;
+            }
+            else {
+                if (touch(production)) {
+                    touchedProductions[touchedCount++] = production;
+                }
+                BitArrays.set(closureOutlooks[production], outlook);
+            }
+            int[] right = rights[production];
+            if (pointer >= right.length || !unterminators[right[pointer]]) {
+                continue;
+            }
+            ClosureTemplate template = getTemplate(right[pointer]);
+            long[] suffixFirst = suffixFirsts[production][pointer + 1];
+            boolean suffixEmpty = suffixCanEmpty[production][pointer + 1];
+            for (int k = 0; k < template.productions.length; ++k) {
+                int beginProduction = template.productions[k];
+                if (touch(beginProduction)) {
+                    touchedProductions[touchedCount++] = beginProduction;
+                }
+                long[] outlooks = closureOutlooks[beginProduction];
+                BitArrays.or(outlooks, template.outlooks[k]);
+                if (template.inherits[k]) {
+                    BitArrays.or(outlooks, suffixFirst);
+                    if (suffixEmpty) {
+                        BitArrays.set(outlooks, outlook);
+                    }
+                }
+            }
+        }
+        int total = count;
+        for (int k = 0; k < touchedCount; ++k) {
+            total += BitArrays.cardinality(closureOutlooks[touchedProductions[k]]);
+        }
+        items = Arrays.copyOf(items, total);
+        for (int k = 0; k < touchedCount; ++k) {
+            int production = touchedProductions[k];
+            long[] outlooks = closureOutlooks[production];
+            for (int outlook = BitArrays.nextSetBit(outlooks, 0); outlook >= 0; outlook = BitArrays.nextSetBit(outlooks, outlook + 1)) {
+                items[count++] = item(production, 0, outlook);
+            }
+            Arrays.fill(outlooks, 0L);
+            closureTouched[production] = false;
+        }
+        return items;
+    }
+
+    //返回这次闭包是否第一次用到这个产生式
+    private boolean touch(int production) {
+        if (closureTouched[production]) {
+            return false;
+        }
+        closureTouched[production] = true;
+        if (closureOutlooks[production] == null) {
+            closureOutlooks[production] = BitArrays.create(pool.getSymbolCount());
+        }
+        return true;
+    }
+
+    /*
+        非终结符A的闭包模板：项目 [A -> ·γ, a] 的闭包中所有圆点在最左边的项目，每个产生式对应一项。
+        outlooks 是与a无关的展望符，inherits 表示a也是它的展望符。从核心项目 [B -> α·Aβ, b] 展开时，
+        a 取 FIRST(βb) 中的每个终结符
+     */
+    private static class ClosureTemplate {
+
+        private final int[] productions;
+
+        private final long[][] outlooks;
+
+        private final boolean[] inherits;
+
+        ClosureTemplate(int[] productions, long[][] outlooks, boolean[] inherits) {
+            this.productions = productions;
+            this.outlooks = outlooks;
+            this.inherits = inherits;
+        }
+    }
+
+    private ClosureTemplate getTemplate(int unterminator) {
+        if (templates[unterminator] != null) {
+            return templates[unterminator];
+        }
+        int[] indexes = new int[productions.length];
+        Arrays.fill(indexes, -1);
+        int[] templateProductions = new int[productions.length];
+        long[][] outlooks = new long[productions.length][];
+        int symbolCount = pool.getSymbolCount();
+        boolean[] inherits = new boolean[productions.length];
+        int count = 0;
+        Deque<Integer> willProceed = new ArrayDeque<>();
+        boolean[] willProceedSet = new boolean[productions.length];
+        for (int production : beginProductions[unterminator]) {
+            indexes[production] = count;
+            templateProductions[count] = production;
+            outlooks[count] = BitArrays.create(symbolCount);
+            inherits[count] = true;
+            willProceed.add(count);
+            willProceedSet[count] = true;
+            ++count;
+        }
+        //展望符沿着 [X -> ·Cδ] 展开到C的产生式，增加了展望符的项需要继续传播
+        while (!willProceed.isEmpty()) {
+            int k = willProceed.poll();
+            willProceedSet[k] = false;
+            int[] right = rights[templateProductions[k]];
+            if (right.length == 0 || !unterminators[right[0]]) {
+                continue;
+            }
+            long[] suffixFirst = suffixFirsts[templateProductions[k]][1];
+            boolean suffixEmpty = suffixCanEmpty[templateProductions[k]][1];
+            for (int production : beginProductions[right[0]]) {
+                int j = indexes[production];
+                boolean changed = false;
+                if (j < 0) {
+                    j = count++;
+                    indexes[production] = j;
+                    templateProductions[j] = production;
+                    outlooks[j] = BitArrays.create(symbolCount);
+                    changed = true;
+                }
+                changed |= BitArrays.or(outlooks[j], suffixFirst);
+                if (suffixEmpty) {
+                    changed |= BitArrays.or(outlooks[j], outlooks[k]);
+                    if (inherits[k] && !inherits[j]) {
+                        inherits[j] = true;
+                        changed = true;
+                    }
+                }
+                if (changed && !willProceedSet[j]) {
+                    willProceed.add(j);
+                    willProceedSet[j] = true;
+                }
+            }
+        }
+        templates[unterminator] = new ClosureTemplate(Arrays.copyOf(templateProductions, count),
+                Arrays.copyOf(outlooks, count), Arrays.copyOf(inherits, count));
+        return templates[unterminator];
+    }
+
+    /* 按圆点后的符号把闭包中的项目分组并后移圆点，得到各个后继项目集，返回后继项目集的个数。
+       symbols[k] 是第k个后继项目集经过的符号编号，按符号在闭包中第一次出现的顺序排列 */
+    int getNextKernels(long[] closure, int[] symbols, CFGStatement[] kernels) {
+        int count = 0;
+        for (long item : closure) {
+            if (!finished(item)) {
+                int symbol = getNextSymbol(item);
+                if (nextCounts[symbol]++ == 0) {
+                    symbols[count++] = symbol;
+                }
+            }
+        }
+        for (int k = 0; k < count; ++k) {
+            int symbol = symbols[k];
+            if (nextItems[symbol] == null || nextItems[symbol].length < nextCounts[symbol]) {
+                nextItems[symbol] = new long[nextCounts[symbol]];
+            }
+            nextCounts[symbol] = 0;
+        }
+        for (long item : closure) {
+            if (!finished(item)) {
+                int symbol = getNextSymbol(item);
+                nextItems[symbol][nextCounts[symbol]++] = next(item);
+            }
+        }
+        for (int k = 0; k < count; ++k) {
+            int symbol = symbols[k];
+            kernels[k] = new CFGStatement(nextItems[symbol], nextCounts[symbol]);
+            nextCounts[symbol] = 0;
+        }
+        return count;
+    }
+}
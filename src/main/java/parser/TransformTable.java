@@ -5,6 +5,7 @@ import exception.PLDLParsingException;
 import parser.*;
 import symbol.*;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
@@ -17,6 +18,28 @@ public class TransformTable implements Serializable{
     private final Set<Integer> endStatements;
     
     private final CFG cfg;
+
+    //编译后的分析表：actions[state * columnCount + column]，0 为出错，正数 n 为移进或转到状态 n - 1，负数 -n 为用第 n - 1 个产生式归约
+    private transient volatile int[] actions = null;
+
+    //columns[符号编号] 是这个符号在 actions 中的列，-1 表示分析表中没有这个符号
+    private transient int[] columns;
+
+    private transient int columnCount;
+
+    private transient CFGProduction[] productions;
+
+    //产生式右部去掉空串后的长度，以及左部所在的列
+    private transient int[] productionLengths;
+
+    private transient int[] productionColumns;
+
+    private transient AbstractSymbol beginAbstractSymbol;
+
+    //endStates[状态] 为true表示这个状态遇到 eof 时归约到开始符号即接受
+    private transient boolean[] endStates;
+
+    private transient Terminator eofSymbol;
     
     public Map<Integer, Map<AbstractSymbol, Movement>> getTableMap() {
         return table;
@@ -30,6 +53,7 @@ public class TransformTable implements Serializable{
     
     public void addEndStatement(int endStatement) {
         this.endStatements.add(endStatement);
+        actions = null;
     }
     
     public Set<Integer> getEndStatements() {
@@ -47,6 +71,7 @@ public class TransformTable implements Serializable{
             table.put(statementIndex, new HashMap<>());
         }
         table.get(statementIndex).put(nextAbstractSymbol, movement);
+        actions = null;
     }
 
     public void add(int statementIndex, AbstractSymbol nextAbstractSymbol, CFGProduction production) {
@@ -55,6 +80,7 @@ public class TransformTable implements Serializable{
             table.put(statementIndex, new HashMap<>());
         }
         table.get(statementIndex).put(nextAbstractSymbol, movement);
+        actions = null;
     }
 
     @Override
@@ -78,16 +104,11 @@ public class TransformTable implements Serializable{
                 result.append("\t");
                 
                 if (table.get(i).containsKey(s)) {
-                    try {
-                        if (endStatements.contains(i) && s.equals(cfg.getSymbolPool().getTerminator("eof"))) {
-                            result.append("acc");
-                        }
-                        else {
-                            result.append(table.get(i).get(s).toString());
-                        }
-                    } catch (PLDLParsingException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
+                    if (endStatements.contains(i) && s.equals(AbstractTerminator.getEofTerminator())) {
+                        result.append("acc");
+                    }
+                    else {
+                        result.append(table.get(i).get(s).toString());
                     }
                 }
             }
@@ -96,64 +117,212 @@ public class TransformTable implements Serializable{
         return result.toString();
     }
 
-    public AnalysisTree getAnalysisTree(List<Symbol> symbols) throws PLDLAnalysisException, PLDLParsingException {
-        AnalysisTree tree = new AnalysisTree();
-        Stack<Integer> statementStack = new Stack<>();
-        Stack<AnalysisNode> nodeStack = new Stack<>();
-        statementStack.push(0);
-        int beginI = 0;
+    private synchronized void compile() throws PLDLParsingException {
+        if (actions != null) {
+            return;
+        }
+        SymbolPool pool = cfg.getSymbolPool();
+        int[] columns = new int[pool.getSymbolCount()];
+        Arrays.fill(columns, -1);
+        int columnCount = 0;
+        Map<CFGProduction, Integer> productionIds = new IdentityHashMap<>();
+        List<CFGProduction> productionList = new ArrayList<>();
+        int stateCount = 0;
+        for (Map.Entry<Integer, Map<AbstractSymbol, Movement>> row : table.entrySet()) {
+            stateCount = Math.max(stateCount, row.getKey() + 1);
+            for (Map.Entry<AbstractSymbol, Movement> entry : row.getValue().entrySet()) {
+                int id = getPooledId(pool, entry.getKey());
+                if (columns[id] < 0) {
+                    columns[id] = columnCount++;
+                }
+                CFGProduction production = entry.getValue().getRegressionProduction();
+                if (production != null && !productionIds.containsKey(production)) {
+                    productionIds.put(production, productionList.size());
+                    productionList.add(production);
+                }
+            }
+        }
+        for (CFGProduction production : productionList) {
+            int id = getPooledId(pool, production.getBeforeAbstractSymbol());
+            if (columns[id] < 0) {
+                columns[id] = columnCount++;
+            }
+        }
+        int[] actions = new int[stateCount * columnCount];
+        for (Map.Entry<Integer, Map<AbstractSymbol, Movement>> row : table.entrySet()) {
+            for (Map.Entry<AbstractSymbol, Movement> entry : row.getValue().entrySet()) {
+                Movement movement = entry.getValue();
+                int index = row.getKey() * columnCount + columns[getPooledId(pool, entry.getKey())];
+                if (movement.getMovement() == Movement.REGRESSION) {
+                    actions[index] = -(productionIds.get(movement.getRegressionProduction()) + 1);
+                }
+                else {
+                    actions[index] = movement.getShiftTo() + 1;
+                }
+            }
+        }
+        AbstractTerminator nullTerminator = AbstractTerminator.getNullTerminator();
+        productions = productionList.toArray(new CFGProduction[0]);
+        productionLengths = new int[productions.length];
+        productionColumns = new int[productions.length];
+        for (int i = 0; i < productions.length; ++i) {
+            for (AbstractSymbol symbol : productions[i].getAfterAbstractSymbols()) {
+                if (symbol != nullTerminator) {
+                    ++productionLengths[i];
+                }
+            }
+            productionColumns[i] = columns[getPooledId(pool, productions[i].getBeforeAbstractSymbol())];
+        }
+        eofSymbol = new Terminator(AbstractTerminator.getEofTerminator());
+        beginAbstractSymbol = null;
+        if (!endStatements.isEmpty()) {
+            beginAbstractSymbol = table.get(endStatements.iterator().next()).get(eofSymbol.getAbstractSymbol()).getRegressionProduction().getBeforeAbstractSymbol();
+        }
+        boolean[] endStates = new boolean[stateCount];
+        for (int endStatement : endStatements) {
+            if (endStatement < stateCount) {
+                endStates[endStatement] = true;
+            }
+        }
+        this.endStates = endStates;
+        this.columns = columns;
+        this.columnCount = columnCount;
+        this.actions = actions;
+    }
+
+    private static int getPooledId(SymbolPool pool, AbstractSymbol symbol) throws PLDLParsingException {
+        AbstractSymbol pooledSymbol = pool.getCanonicalSymbol(symbol);
+        if (pooledSymbol == null) {
+            throw new PLDLParsingException("分析表中的符号 " + symbol.getName() + " 不在文法的符号池中。", null);
+        }
+        return pooledSymbol.getId();
+    }
+
+    /* 终结符不属于符号池时按名字找到符号池中的终结符，找不到时返回null */
+    private AbstractTerminator getPooledTerminator(AbstractTerminator terminator) {
+        SymbolPool pool = cfg.getSymbolPool();
+        if (pool.contains(terminator)) {
+            return terminator;
+        }
+        AbstractSymbol pooledSymbol = pool.getCanonicalSymbol(terminator);
+        return pooledSymbol instanceof AbstractTerminator ? (AbstractTerminator) pooledSymbol : null;
+    }
+
+    /* 分析一批已经识别好的词法单元，得到以对象表示的分析树，用于动作语句等小分析树 */
+    public AnalysisTree getAnalysisTree(TokenBuffer tokens) throws PLDLAnalysisException, PLDLParsingException {
+        FlatAnalysisTree tree = getFlatAnalysisTree(tokens);
+        return tree == null ? null : tree.toAnalysisTree();
+    }
+
+    public FlatAnalysisTree getFlatAnalysisTree(TokenBuffer tokens) throws PLDLAnalysisException, PLDLParsingException {
+        try {
+            return getFlatAnalysisTree(tokens, null, new Attributes());
+        } catch (IOException e) {
+            throw new PLDLAnalysisException("读取符号失败。", e);
+        }
+    }
+
+    /* 词法单元都保存在分析树的缓冲区中，叶子节点的词法值在读取时才从源码中取出 */
+    public FlatAnalysisTree getFlatAnalysisTree(TokenSource tokens) throws PLDLAnalysisException, PLDLParsingException, IOException {
+        return getFlatAnalysisTree(tokens, new Attributes());
+    }
+
+    /* attributes 是语言的属性表，分析树节点的属性数组按它的大小分配 */
+    public FlatAnalysisTree getFlatAnalysisTree(TokenSource tokens, Attributes attributes) throws PLDLAnalysisException, PLDLParsingException, IOException {
+        return getFlatAnalysisTree(new TokenBuffer(), tokens, attributes);
+    }
+
+    /* 缓冲区中的词法单元用完后从 source 中取下一批，source 为null时输入到此结束 */
+    private FlatAnalysisTree getFlatAnalysisTree(TokenBuffer tokens, TokenSource source, Attributes attributes) throws PLDLAnalysisException, PLDLParsingException, IOException {
         if (endStatements.size() <= 0) {
             return null;
         }
-        AbstractSymbol beginAbstractSymbol = table.get(endStatements.iterator().next()).get(cfg.getSymbolPool().getTerminator("eof")).getRegressionProduction().getBeforeAbstractSymbol();
-        while(beginI != symbols.size() - 1 || !symbols.get(beginI).getAbstractSymbol().equals(beginAbstractSymbol)){
-            int nowStatement = statementStack.peek();
-            Symbol nowSymbol = beginI < symbols.size() ? symbols.get(beginI) : new Terminator(cfg.getSymbolPool().getTerminator("eof"));
-            Movement movement =  table.get(nowStatement).get(nowSymbol.getAbstractSymbol());
-            if (movement == null) {
+        compile();
+        int[] actions = this.actions;
+        FlatAnalysisTree tree = new FlatAnalysisTree(productions, tokens, attributes);
+        int[] statementStack = new int[64];
+        int[] nodeStack = new int[64];
+        int top = 0;
+        statementStack[0] = 0;
+        int beginI = 0;
+        //每种词法单元在符号池中的终结符和在分析表中的列，第一次遇到时查找
+        AbstractTerminator[] terminators = null;
+        AbstractTerminator[] kindTerminators = null;
+        int[] kindColumns = null;
+        int index = 0, column = -1;
+        boolean end = false, fetch = true;
+        while (true) {
+            if (fetch) {
+                fetch = false;
+                if (index == tokens.size()) {
+                    end = source == null || !source.fill(tokens);
+                }
+                if (end) {
+                    column = columns[eofSymbol.getAbstractSymbol().getId()];
+                }
+                else {
+                    if (tokens.getTerminators() != terminators) {
+                        terminators = tokens.getTerminators();
+                        kindTerminators = new AbstractTerminator[terminators.length];
+                        kindColumns = new int[terminators.length];
+                        tree.setTerminators(kindTerminators);
+                    }
+                    int kind = tokens.getKind(index);
+                    if (kindTerminators[kind] == null) {
+                        AbstractTerminator terminator = getPooledTerminator(terminators[kind]);
+                        kindTerminators[kind] = terminator != null ? terminator : terminators[kind];
+                        int id = terminator != null ? terminator.getId() : -1;
+                        kindColumns[kind] = id >= 0 && id < columns.length ? columns[id] : -1;
+                    }
+                    column = kindColumns[kind];
+                }
+            }
+            int action = column < 0 ? 0 : actions[statementStack[top] * columnCount + column];
+            if (action == 0) {
+                Symbol nowSymbol = end ? eofSymbol : tokens.getSymbol(index);
                 throw new PLDLAnalysisException("程序分析到第 " + (beginI + 1) + " 个符号：" + nowSymbol + " 时既无法移进，也无法归约。", null);
             }
+            else if (action > 0) {
+                if (++top == statementStack.length) {
+                    statementStack = Arrays.copyOf(statementStack, top * 2);
+                    nodeStack = Arrays.copyOf(nodeStack, top * 2);
+                }
+                statementStack[top] = action - 1;
+                nodeStack[top] = tree.addLeaf(index);
+                ++beginI;
+                ++index;
+                fetch = true;
+            }
             else {
-                switch(movement.getMovement()) {
-                    case Movement.SHIFT:
-                        nodeStack.push(new AnalysisNode(nowSymbol));
-                    case Movement.GOTO:
-                        statementStack.push(movement.getShiftTo());
-                        ++beginI;
-                        break;
-                    case Movement.REGRESSION:
-                        CFGProduction production = movement.getRegressionProduction();
-                        AnalysisNode node = new AnalysisNode(new Unterminator((AbstractUnterminator) production.getBeforeAbstractSymbol()));
-                        node.setProduction(production);
-                        node.setChildren(new ArrayList<>());
-                        AbstractTerminator nullTerminator = cfg.getSymbolPool().getTerminator("null");
-                        Stack<AnalysisNode> tempStack = new Stack<>();
-                        for (AbstractSymbol symbol : production.getAfterAbstractSymbols()) {
-                            if (symbol != nullTerminator) {
-                                statementStack.pop();
-                                tempStack.push(nodeStack.pop());
-                            }
-                        }
-                        for (AbstractSymbol symbol : production.getAfterAbstractSymbols()) {
-                            if (symbol != nullTerminator) {
-                                AnalysisNode childNode = tempStack.pop();
-                                childNode.setParent(node);
-                                node.getChildren().add(childNode);
-                            }
-                        }
-                        nodeStack.push(node);
-                        --beginI;
-                        symbols.set(beginI, node.getValue());
-                        break;
+                int productionIndex = -action - 1;
+                CFGProduction production = productions[productionIndex];
+                int length = productionLengths[productionIndex];
+                int node = tree.addNode(productionIndex, nodeStack, top - length + 1, top);
+                boolean accept = end && endStates[statementStack[top]];
+                top -= length;
+                //只有在结束状态遇到 eof 并且归约后栈已空时才接受，开始符号左递归时其它归约到开始符号的情况照常转移
+                if (accept && top == 0 && production.getBeforeAbstractSymbol().equals(beginAbstractSymbol)) {
+                    tree.setRoot(node);
+                    return tree;
+                }
+                int gotoAction = actions[statementStack[top] * columnCount + productionColumns[productionIndex]];
+                if (gotoAction <= 0 && accept) {
+                    List<Symbol> remains = new ArrayList<>();
+                    for (int i = 1; i <= top; ++i) {
+                        remains.add(tree.getSymbol(nodeStack[i]));
+                    }
+                    throw new PLDLAnalysisException("程序最终没有归约结束。符号栈中剩余：" + remains, null);
+                }
+                if (gotoAction <= 0) {
+                    throw new PLDLAnalysisException("程序分析到第 " + (beginI + 1) + " 个符号：" + tree.getSymbol(node) + " 时既无法移进，也无法归约。", null);
                 }
+                if (++top == statementStack.length) {
+                    statementStack = Arrays.copyOf(statementStack, top * 2);
+                    nodeStack = Arrays.copyOf(nodeStack, top * 2);
+                }
+                statementStack[top] = gotoAction - 1;
+                nodeStack[top] = node;
             }
         }
-        if (nodeStack.size() != 1) {
-            throw new PLDLAnalysisException("程序最终没有归约结束。符号栈中剩余：" + nodeStack, null);
-        }
-        else {
-            tree.setRoot(nodeStack.pop());
-        }
-        return tree;
     }
 }
@@ -4,8 +4,29 @@ public abstract class AbstractSymbol {
 
     public static final int TERMINATOR = 0x01, UNTERMINATOR = 0xff;
 
+    //在符号池中的编号，同一个符号池中的符号编号从0开始连续分配，-1表示不属于任何符号池
+    private int id = -1;
+
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /*
+        同一个符号池中的符号只有一个实例，通常比较引用就能得到结果；
+        不属于符号池的符号和来自不同符号池的符号仍按类型和名字比较，与 hashCode 一致
+     */
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AbstractSymbol)) {
+            return false;
+        }
         AbstractSymbol argument = (AbstractSymbol) (obj);
         return getType() == argument.getType() && getName().equals(argument.getName());
     }
@@ -2,12 +2,24 @@ package symbol;
 
 public class AbstractTerminator extends AbstractSymbol {
 
+    //空串和输入结束符在所有符号池中共用同一个实例，编号固定为0和1
+    public static final int NULL_ID = 0, EOF_ID = 1;
+
+    private static final AbstractTerminator nullTerminator = new AbstractTerminator("null", NULL_ID);
+
+    private static final AbstractTerminator eofTerminator = new AbstractTerminator("eof", EOF_ID);
+
     private String name = null;
 
     public AbstractTerminator(String _name) {
         name = _name;
     }
 
+    private AbstractTerminator(String _name, int id) {
+        name = _name;
+        setId(id);
+    }
+
     public String getName() {
         return name;
     }
@@ -22,7 +34,11 @@ public class AbstractTerminator extends AbstractSymbol {
     }
 
     public static AbstractTerminator getNullTerminator() {
-        return new AbstractTerminator("null");
+        return nullTerminator;
+    }
+
+    public static AbstractTerminator getEofTerminator() {
+        return eofTerminator;
     }
 
     private boolean isComment = false;
@@ -8,7 +8,8 @@ public class AbstractUnterminator extends AbstractSymbol {
 
     private String name = null;
 
-    private Set<AbstractTerminator> firstSet = null;
+    //由 CFG.setFirstSet 一起求出，集合不可修改
+    private TerminatorSet firstSet = null, followSet = null;
 
     private Set<CFGProduction> beginProductions = null;
 
@@ -39,14 +40,23 @@ public class AbstractUnterminator extends AbstractSymbol {
         return "非终结符：" + name;
     }
 
-    public void setFirstSet(Set<AbstractTerminator> firstSet) {
+    public void setFirstSet(TerminatorSet firstSet) {
         this.firstSet = firstSet;
     }
 
-    public Set<AbstractTerminator> getFirstSet() {
+    /* 能推出空串时包含null */
+    public TerminatorSet getFirstSet() {
         return firstSet;
     }
 
+    public void setFollowSet(TerminatorSet followSet) {
+        this.followSet = followSet;
+    }
+
+    public TerminatorSet getFollowSet() {
+        return followSet;
+    }
+
     public Set<CFGProduction> getBeginProductions() {
         return beginProductions;
     }
@@ -0,0 +1,54 @@
+package symbol;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    一种语言的属性名与属性槽位的对应关系，由 PreParse 在加载语言定义时登记动作语句中出现的属性名，编译产物持有它。
+    编译代码时只按槽位下标读写属性，不再登记新的属性名，因此可以在多个线程间共享
+ */
+public class Attributes {
+
+    //词法值总是在第0个槽位，词法分析器不需要知道语言定义就可以写入
+    public static final int VAL = 0;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private String[] names = new String[0];
+
+    public Attributes() {
+        getSlot("val");
+    }
+
+    public Attributes(Attributes attributes) {
+        slots.putAll(attributes.slots);
+        names = attributes.names.clone();
+    }
+
+    /* 属性名没有登记过时登记到下一个槽位 */
+    public int getSlot(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = names.length;
+            names = Arrays.copyOf(names, slot + 1);
+            names[slot] = name;
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /* 属性名没有登记过时返回-1 */
+    public int findSlot(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public int size() {
+        return names.length;
+    }
+}
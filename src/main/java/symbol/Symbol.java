@@ -1,12 +1,21 @@
 package symbol;
 
-import java.util.Map;
+import java.util.*;
 
 public abstract class Symbol {
 
     public static final int TERMINATOR = 0x01, UNTERMINATOR = 0xff;
 
-    protected Map<String, Object> properties;
+    private static final Object[] EMPTY_SLOTS = new Object[0];
+
+    /* 第i个元素是槽位为i的属性值，null表示没有这个属性，见 Attributes */
+    private Object[] slots = EMPTY_SLOTS;
+
+    //以属性名访问属性时用到的属性表，分析树中的符号使用所属语言的属性表，其它符号在第一次按名字访问时创建自己的属性表
+    private Attributes attributes;
+
+    //属性表是所属语言的，登记新的属性名前先复制一份，不修改语言的属性表
+    private boolean shared = false;
 
     private AbstractSymbol abstractSymbol;
 
@@ -15,7 +24,7 @@ public abstract class Symbol {
         Symbol argument = (Symbol) (obj);
         return getAbstractSymbol().equals(argument.getAbstractSymbol()) && getProperties().equals(argument.getProperties());
     }
-    
+
     public abstract int getType();
 
     public void setAbstractSymbol(AbstractSymbol abstractSymbol) {
@@ -24,7 +33,7 @@ public abstract class Symbol {
 
     @Override
     public String toString() {
-        return abstractSymbol.toString() + ":" + properties.toString();
+        return abstractSymbol.toString() + ":" + getProperties().toString();
     }
 
     public AbstractSymbol getAbstractSymbol() {
@@ -35,16 +44,151 @@ public abstract class Symbol {
     public int hashCode() {
         return getAbstractSymbol().hashCode() ^ getProperties().hashCode();
     }
-    
+
+    public void setAttributes(Attributes attributes) {
+        this.attributes = attributes;
+        shared = attributes != null;
+    }
+
+    private Attributes getAttributes() {
+        if (attributes == null) {
+            attributes = new Attributes();
+        }
+        return attributes;
+    }
+
+    private int registerSlot(String key) {
+        if (shared && attributes.findSlot(key) < 0) {
+            attributes = new Attributes(attributes);
+            shared = false;
+        }
+        return getAttributes().getSlot(key);
+    }
+
+    public Object getSlot(int slot) {
+        return slot < slots.length ? slots[slot] : null;
+    }
+
+    public void setSlot(int slot, Object value) {
+        if (slot >= slots.length) {
+            if (value == null) {
+                return;
+            }
+            slots = Arrays.copyOf(slots, Math.max(slot + 1, attributes != null ? attributes.size() : 0));
+        }
+        slots[slot] = value;
+    }
+
+    protected int getSlotCount() {
+        return slots.length;
+    }
+
+    /* 以属性名访问属性，读写都会转换为对槽位的操作 */
     public Map<String, Object> getProperties() {
-        return properties;
+        return new AbstractMap<String, Object>() {
+
+            @Override
+            public Object get(Object key) {
+                int slot = key instanceof String ? getAttributes().findSlot((String) key) : -1;
+                return slot < 0 ? null : getSlot(slot);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public Object put(String key, Object value) {
+                int slot = registerSlot(key);
+                Object result = getSlot(slot);
+                setSlot(slot, value);
+                return result;
+            }
+
+            @Override
+            public Object remove(Object key) {
+                int slot = key instanceof String ? getAttributes().findSlot((String) key) : -1;
+                if (slot < 0) {
+                    return null;
+                }
+                Object result = getSlot(slot);
+                setSlot(slot, null);
+                return result;
+            }
+
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                return new AbstractSet<Entry<String, Object>>() {
+
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        return new Iterator<Entry<String, Object>>() {
+
+                            private int next = nextSlot(0), last = -1;
+
+                            private int nextSlot(int slot) {
+                                while (slot < getSlotCount() && getSlot(slot) == null) {
+                                    ++slot;
+                                }
+                                return slot;
+                            }
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < getSlotCount();
+                            }
+
+                            @Override
+                            public Entry<String, Object> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                int slot = last = next;
+                                next = nextSlot(next + 1);
+                                return new SimpleEntry<String, Object>(getAttributes().getName(slot), getSlot(slot)) {
+                                    @Override
+                                    public Object setValue(Object value) {
+                                        setSlot(slot, value);
+                                        return super.setValue(value);
+                                    }
+                                };
+                            }
+
+                            @Override
+                            public void remove() {
+                                if (last < 0) {
+                                    throw new IllegalStateException();
+                                }
+                                setSlot(last, null);
+                                last = -1;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        int result = 0;
+                        for (int i = 0; i < getSlotCount(); ++i) {
+                            if (getSlot(i) != null) {
+                                ++result;
+                            }
+                        }
+                        return result;
+                    }
+                };
+            }
+        };
     }
 
     public void setProperties(Map<String, Object> properties) {
-        this.properties = properties;
+        slots = EMPTY_SLOTS;
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            addProperty(property.getKey(), property.getValue());
+        }
     }
 
     public void addProperty(String key, Object value) {
-        this.properties.put(key, value);
+        setSlot(registerSlot(key), value);
     }
 }
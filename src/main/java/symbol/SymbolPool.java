@@ -6,40 +6,63 @@ import symbol.AbstractSymbol;
 import symbol.AbstractTerminator;
 import symbol.AbstractUnterminator;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/* 每个符号名只对应一个符号实例，并按加入顺序分配连续的编号，分析表等可以直接用编号作为数组下标 */
 public class SymbolPool {
 
+    private final List<AbstractSymbol> symbols = new ArrayList<>();
+
+    private final List<String> warnings = new ArrayList<>();
+
+    public SymbolPool() {
+        symbols.add(AbstractTerminator.getNullTerminator());
+        symbols.add(AbstractTerminator.getEofTerminator());
+    }
+
+    private <T extends AbstractSymbol> T register(T symbol) {
+        symbol.setId(symbols.size());
+        symbols.add(symbol);
+        return symbol;
+    }
+
+    private AbstractTerminator newTerminator(String str) {
+        return str.equals("eof") ? AbstractTerminator.getEofTerminator() : register(new AbstractTerminator(str));
+    }
+
     private Map<String, AbstractUnterminator> unterminators = null;
     
     private Map<String, AbstractTerminator> terminators = null;
 
     public void initUnterminatorString(Set<String> unterminatorStrs) throws PLDLParsingException {
         if (unterminators != null) {
-            PLDLParsingWarning.setLog("非终结符集合已经初始化过，重新初始化可能会导致不可预料的问题。");
+            PLDLParsingWarning.setLog(warnings, "非终结符集合已经初始化过，重新初始化可能会导致不可预料的问题。");
         }
         if (unterminatorStrs.contains("null")) {
             throw new PLDLParsingException("null是PLDL语言的保留字，用于表示空串，因而不能表示其他非终结符，请更换非终结符的名字。", null);
         }
         unterminators = new HashMap<>();
         for (String str : unterminatorStrs) {
-            unterminators.put(str, new AbstractUnterminator(str));
+            unterminators.put(str, register(new AbstractUnterminator(str)));
         }
     }
 
     public void initTerminatorString(Set<String> terminatorStrs) throws PLDLParsingException {
         if (terminators != null) {
-            PLDLParsingWarning.setLog("终结符集合已经初始化过，重新初始化可能会导致不可预料的问题。");
+            PLDLParsingWarning.setLog(warnings, "终结符集合已经初始化过，重新初始化可能会导致不可预料的问题。");
         }
         if (terminatorStrs.contains("null")){
             throw new PLDLParsingException("null是PLDL语言的保留字，用于表示空串，因而不能表示其他终结符，请更换终结符的名字。", null);
         }
         terminators = new HashMap<>();
         for (String str : terminatorStrs) {
-            terminators.put(str, new AbstractTerminator(str));
+            terminators.put(str, newTerminator(str));
         }
         terminators.put("null", AbstractTerminator.getNullTerminator());
     }
@@ -62,19 +85,19 @@ public class SymbolPool {
 
     public void addUnterminatorStr(String str) {
         if (!unterminators.containsKey(str)) {
-            unterminators.put(str, new AbstractUnterminator(str));
+            unterminators.put(str, register(new AbstractUnterminator(str)));
         }
     }
 
     public void addTerminatorStr(String str) {
         if (!terminators.containsKey(str)) {
-            terminators.put(str, new AbstractTerminator(str));
+            terminators.put(str, newTerminator(str));
         }
     }
 
     public void addCommentStr(String comment) {
         if (!terminators.containsKey(comment)){
-            AbstractTerminator terminator = new AbstractTerminator(comment);
+            AbstractTerminator terminator = register(new AbstractTerminator(comment));
             terminator.setIsComment(true);
             terminators.put(comment, terminator);
         }
@@ -103,4 +126,31 @@ public class SymbolPool {
         throw new PLDLParsingException("符号 " + name + " 既不能识别为终结符，也不能识别为非终结符。", null);
     }
 
-}
\ No newline at end of file
+    public List<String> getWarnings() {
+        return Collections.unmodifiableList(warnings);
+    }
+
+    public int getSymbolCount() {
+        return symbols.size();
+    }
+
+    public AbstractSymbol getSymbol(int id) {
+        return symbols.get(id);
+    }
+
+    public boolean contains(AbstractSymbol symbol) {
+        int id = symbol.getId();
+        return id >= 0 && id < symbols.size() && symbols.get(id) == symbol;
+    }
+
+    /* 返回符号池中与参数类型和名字相同的符号，没有时返回null。参数本身属于符号池时不需要查找 */
+    public AbstractSymbol getCanonicalSymbol(AbstractSymbol symbol) {
+        if (contains(symbol)) {
+            return symbol;
+        }
+        if (symbol.getType() == AbstractSymbol.TERMINATOR) {
+            return terminators.get(symbol.getName());
+        }
+        return unterminators.get(symbol.getName());
+    }
+}
@@ -1,12 +1,51 @@
 package symbol;
 
-import java.util.HashMap;
+import java.util.Map;
 
 public class Terminator extends Symbol {
 
+    /* 词法值在第一次读取属性时才从源码中复制出来 */
+    private CharSequence source = null;
+
+    private int begin, end;
+
     public Terminator(AbstractTerminator t) {
         setAbstractSymbol(t);
-        setProperties(new HashMap<>());
+    }
+
+    public Terminator(AbstractTerminator t, CharSequence source, int begin, int end) {
+        this(t);
+        this.source = source;
+        this.begin = begin;
+        this.end = end;
+    }
+
+    @Override
+    public Object getSlot(int slot) {
+        if (slot == Attributes.VAL && source != null) {
+            super.setSlot(Attributes.VAL, source.subSequence(begin, end).toString());
+            source = null;
+        }
+        return super.getSlot(slot);
+    }
+
+    @Override
+    public void setSlot(int slot, Object value) {
+        if (slot == Attributes.VAL) {
+            source = null;
+        }
+        super.setSlot(slot, value);
+    }
+
+    @Override
+    protected int getSlotCount() {
+        return source != null ? Math.max(Attributes.VAL + 1, super.getSlotCount()) : super.getSlotCount();
+    }
+
+    @Override
+    public void setProperties(Map<String, Object> properties) {
+        source = null;
+        super.setProperties(properties);
     }
 
     @Override
@@ -0,0 +1,68 @@
+package symbol;
+
+import util.BitArrays;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/* 以符号编号为下标的终结符位集合，创建后不能修改 */
+public class TerminatorSet extends AbstractSet<AbstractTerminator> {
+
+    private final SymbolPool pool;
+
+    private final long[] words;
+
+    private final int size;
+
+    public TerminatorSet(SymbolPool pool, long[] words) {
+        this.pool = pool;
+        this.words = words.clone();
+        this.size = BitArrays.cardinality(words);
+    }
+
+    public boolean containsId(int id) {
+        return BitArrays.get(words, id);
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        if (!(obj instanceof AbstractSymbol)) {
+            return false;
+        }
+        AbstractSymbol symbol = pool.getCanonicalSymbol((AbstractSymbol) obj);
+        return symbol != null && containsId(symbol.getId());
+    }
+
+    public long[] toLongArray() {
+        return words.clone();
+    }
+
+    @Override
+    public Iterator<AbstractTerminator> iterator() {
+        return new Iterator<AbstractTerminator>() {
+
+            private int next = BitArrays.nextSetBit(words, 0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public AbstractTerminator next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                AbstractTerminator result = (AbstractTerminator) pool.getSymbol(next);
+                next = BitArrays.nextSetBit(words, next + 1);
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
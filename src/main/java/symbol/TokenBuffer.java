@@ -0,0 +1,112 @@
+package symbol;
+
+import java.util.Arrays;
+
+/*
+    词法分析的结果。每个词法单元只占三个int：种类、在源码中的起始位置和长度，
+    种类是 getTerminators 数组的下标，词法值在 getLexeme 时才从源码中复制出来
+ */
+public class TokenBuffer {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private AbstractTerminator[] terminators = new AbstractTerminator[0];
+
+    private CharSequence source = "";
+
+    private int[] kinds, starts, lengths;
+
+    private int size = 0;
+
+    public TokenBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TokenBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    /* 清空缓冲区，之后加入的词法单元的种类都是 terminators 的下标 */
+    public void reset(AbstractTerminator[] terminators) {
+        this.terminators = terminators;
+        this.source = "";
+        this.size = 0;
+    }
+
+    public void setSource(CharSequence source) {
+        this.source = source;
+    }
+
+    /* 把一段源码接在已有的源码之后，返回它在源码中的起始位置。流式分析时只接入留下的词法单元的词法值 */
+    public int appendSource(char[] chars, int offset, int length) {
+        if (!(source instanceof StringBuilder)) {
+            source = new StringBuilder(source);
+        }
+        StringBuilder builder = (StringBuilder) source;
+        int start = builder.length();
+        builder.append(chars, offset, length);
+        return start;
+    }
+
+    public void add(int kind, int start, int length) {
+        if (size == kinds.length) {
+            int capacity = Math.max(size * 2, 1);
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = length;
+        ++size;
+    }
+
+    public void trimToSize() {
+        kinds = Arrays.copyOf(kinds, size);
+        starts = Arrays.copyOf(starts, size);
+        lengths = Arrays.copyOf(lengths, size);
+        if (source instanceof StringBuilder) {
+            ((StringBuilder) source).trimToSize();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public AbstractTerminator[] getTerminators() {
+        return terminators;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public int getKind(int index) {
+        return kinds[index];
+    }
+
+    public AbstractTerminator getTerminator(int index) {
+        return terminators[kinds[index]];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public String getLexeme(int index) {
+        return source.subSequence(starts[index], starts[index] + lengths[index]).toString();
+    }
+
+    /* 词法值在第一次读取时才复制出来的终结符 */
+    public Terminator getSymbol(int index) {
+        return new Terminator(getTerminator(index), source, starts[index], starts[index] + lengths[index]);
+    }
+}
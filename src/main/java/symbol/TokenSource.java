@@ -0,0 +1,12 @@
+package symbol;
+
+import exception.PLDLAnalysisException;
+import exception.PLDLParsingException;
+
+import java.io.IOException;
+
+/* 按需分批取得词法单元：每次把一批词法单元加到缓冲区末尾，没有更多词法单元时返回false */
+public interface TokenSource {
+
+    boolean fill(TokenBuffer buffer) throws PLDLAnalysisException, PLDLParsingException, IOException;
+}
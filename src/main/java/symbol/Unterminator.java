@@ -1,12 +1,9 @@
 package symbol;
 
-import java.util.HashMap;
-
 public class Unterminator extends Symbol {
 
     public Unterminator(AbstractUnterminator u) {
         setAbstractSymbol(u);
-        setProperties(new HashMap<>());
     }
 
     @Override
@@ -0,0 +1,97 @@
+package translator;
+
+import symbol.Attributes;
+
+import java.util.Arrays;
+
+/* 一条动作语句解析后的形式，执行时不需要再遍历动作树 */
+public class Instruction {
+
+    public static final int GO = 0, PRINT = 1, NEW_TEMP = 2, ASSIGN = 3, GEN = 4;
+
+    private final int code;
+
+    //GO要遍历的子节点下标
+    private final int child;
+
+    //NEW_TEMP的临时变量名，或GEN的运算符
+    private final String name;
+
+    //ASSIGN的第一个操作数是被赋值的属性，其余的操作数拼接后赋给它
+    private final Operand[] operands;
+
+    private Instruction(int code, int child, String name, Operand... operands) {
+        this.code = code;
+        this.child = child;
+        this.name = name;
+        this.operands = operands;
+    }
+
+    public static Instruction go(int child) {
+        return new Instruction(GO, child, null);
+    }
+
+    public static Instruction print(Operand operand) {
+        return new Instruction(PRINT, -1, null, operand);
+    }
+
+    public static Instruction newTemp(Operand target, String name) {
+        return new Instruction(NEW_TEMP, -1, name, target);
+    }
+
+    public static Instruction assign(Operand target, Operand[] sources) {
+        Operand[] operands = new Operand[sources.length + 1];
+        operands[0] = target;
+        System.arraycopy(sources, 0, operands, 1, sources.length);
+        return new Instruction(ASSIGN, -1, null, operands);
+    }
+
+    public static Instruction gen(String operator, Operand operand1, Operand operand2, Operand operand3) {
+        return new Instruction(GEN, -1, operator, operand1, operand2, operand3);
+    }
+
+    /* 操作数中的属性名转换为所属语言的槽位 */
+    public Instruction bind(Attributes attributes) {
+        Operand[] result = new Operand[operands.length];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = operands[i].bind(attributes);
+        }
+        return new Instruction(code, child, name, result);
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public int getChild() {
+        return child;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Operand[] getOperands() {
+        return operands;
+    }
+
+    @Override
+    public String toString() {
+        switch (code) {
+            case GO:
+                return "go($" + (child + 1) + ")";
+            case PRINT:
+                return "print(" + operands[0] + ")";
+            case NEW_TEMP:
+                return operands[0] + " = newTemp(" + name + ")";
+            case ASSIGN:
+                StringBuilder result = new StringBuilder().append(operands[0]).append(" = ");
+                for (int i = 1; i < operands.length; ++i) {
+                    result.append(i > 1 ? " + " : "").append(operands[i]);
+                }
+                return result.toString();
+            default:
+                return "gen(" + name + ", " + Arrays.toString(operands) + ")";
+        }
+    }
+}
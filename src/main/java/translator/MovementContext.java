@@ -0,0 +1,30 @@
+package translator;
+
+import java.util.*;
+
+/* 一次编译过程中的可变状态，目前只有newTemp的计数。编译产物会被多个编译过程同时使用，因此这些状态不能保存在编译产物中 */
+public class MovementContext {
+
+    private final Map<String, Integer> tempStorages = new HashMap<>();
+
+    public String newTemp(String name) {
+        if (tempStorages.containsKey(name)) {
+            tempStorages.put(name, tempStorages.get(name) + 1);
+        }
+        else {
+            tempStorages.put(name, 0);
+        }
+        return "t_" + name + String.valueOf(tempStorages.get(name));
+    }
+
+    public Map<String, Set<String>> getTempStorages() {
+        Map<String, Set<String>> results = new HashMap<>();
+        for (String key : tempStorages.keySet()) {
+            results.put(key, new HashSet<>());
+            for (int i = 0; i <= tempStorages.get(key); ++i) {
+                results.get(key).add("t_" + key + String.valueOf(i));
+            }
+        }
+        return results;
+    }
+}
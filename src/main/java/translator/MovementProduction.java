@@ -1,9 +1,14 @@
 package translator;
 
-import exception.PLDLAnalysisException;
 import exception.PLDLParsingException;
 import parser.AnalysisNode;
+import parser.AnalysisTree;
 import parser.CFGProduction;
+import symbol.AbstractSymbol;
+import symbol.Attributes;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class MovementProduction extends CFGProduction {
 
@@ -11,5 +16,29 @@ public abstract class MovementProduction extends CFGProduction {
         super(production);
     }
 
-    public abstract void doMovement(AnalysisNode movementRoot, AnalysisNode parsingTreeRoot) throws PLDLParsingException, PLDLAnalysisException;
+    /* children中终结符是它的词法值，非终结符是它自底向上解析得到的结果 */
+    public abstract Object lower(Object[] children) throws PLDLParsingException;
+
+    public static Object lower(AnalysisNode movementNode) throws PLDLParsingException {
+        List<AnalysisNode> children = movementNode.getChildren() == null ? new ArrayList<AnalysisNode>() : movementNode.getChildren();
+        Object[] values = new Object[children.size()];
+        for (int i = 0; i < values.length; ++i) {
+            AnalysisNode childNode = children.get(i);
+            if (childNode.getValue().getAbstractSymbol().getType() == AbstractSymbol.TERMINATOR) {
+                values[i] = childNode.getValue().getSlot(Attributes.VAL);
+            }
+            else {
+                values[i] = lower(childNode);
+            }
+        }
+        return ((MovementProduction) movementNode.getProduction()).lower(values);
+    }
+
+    public static Instruction[] lower(List<AnalysisTree> trees, Attributes attributes) throws PLDLParsingException {
+        Instruction[] result = new Instruction[trees.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = ((Instruction) lower(trees.get(i).getRoot())).bind(attributes);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,126 @@
+package translator;
+
+import exception.PLDLParsingException;
+import parser.AnalysisCursor;
+import parser.FlatAnalysisTree;
+import symbol.Attributes;
+
+/* 动作语句中的 $$(name)、$num(name)、变量和常量，在加载语言定义时从动作树中解析出来 */
+public class Operand {
+
+    public static final int SELF = 0, CHILD = 1, VARIABLE = 2, CONSTANT = 3;
+
+    private final int kind;
+
+    private final int child;
+
+    //VARIABLE的变量名，或CONSTANT的值
+    private final String name;
+
+    private final String attribute;
+
+    //属性名和VARIABLE的 var_变量名 在加载语言定义时由 bind 转换为所属语言的槽位，绑定前为-1
+    private final int slot, variableSlot;
+
+    private Operand(int kind, int child, String name, String attribute, int slot, int variableSlot) {
+        this.kind = kind;
+        this.child = child;
+        this.name = name;
+        this.attribute = attribute;
+        this.slot = slot;
+        this.variableSlot = variableSlot;
+    }
+
+    private Operand(int kind, int child, String name, String attribute) {
+        this(kind, child, name, attribute, -1, -1);
+    }
+
+    public static Operand self() {
+        return new Operand(SELF, -1, null, null);
+    }
+
+    public static Operand child(int child) {
+        return new Operand(CHILD, child, null, null);
+    }
+
+    public static Operand variable(String name) {
+        return new Operand(VARIABLE, -1, name, null);
+    }
+
+    public static Operand constant(String value) {
+        return new Operand(CONSTANT, -1, value, null);
+    }
+
+    public Operand withAttribute(String attribute) {
+        return new Operand(kind, child, name, attribute);
+    }
+
+    public Operand bind(Attributes attributes) {
+        return new Operand(kind, child, name, attribute,
+                attribute == null ? -1 : attributes.getSlot(attribute),
+                kind == VARIABLE ? attributes.getSlot("var_" + name) : -1);
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    /* 操作数所在的节点，CONSTANT没有节点，返回-1 */
+    public int getNode(AnalysisCursor cursor) throws PLDLParsingException {
+        FlatAnalysisTree tree = cursor.getTree();
+        int node = cursor.getNode();
+        switch (kind) {
+            case SELF:
+                return node;
+            case CHILD:
+                return getChild(tree, node, child);
+            case VARIABLE:
+                Integer result = (Integer) tree.getSlot(node, variableSlot);
+                if (result == null) {
+                    result = tree.newLeaf();
+                    tree.setSlot(result, Attributes.VAL, "var_" + name);
+                    tree.setSlot(node, variableSlot, result);
+                }
+                return result;
+            default:
+                return -1;
+        }
+    }
+
+    public static int getChild(FlatAnalysisTree tree, int node, int child) throws PLDLParsingException {
+        int result = tree.getChild(node, child);
+        if (result < 0) {
+            throw new PLDLParsingException("$后面的数字超出这条产生式右部元素的范围", null);
+        }
+        return result;
+    }
+
+    public Object getValue(AnalysisCursor cursor) throws PLDLParsingException {
+        if (kind == CONSTANT) {
+            return name;
+        }
+        return cursor.getTree().getSlot(getNode(cursor), slot);
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case SELF:
+                return "$$(" + attribute + ")";
+            case CHILD:
+                return "$" + (child + 1) + "(" + attribute + ")";
+            case VARIABLE:
+                return name + "(" + attribute + ")";
+            default:
+                return name;
+        }
+    }
+}
@@ -6,8 +6,9 @@ import exception.PLDLParsingWarning;
 import lexer.Lexer;
 import lexer.NFA;
 import lexer.SimpleREApply;
-import parser.AnalysisNode;
+import parser.AnalysisCursor;
 import parser.AnalysisTree;
+import parser.FlatAnalysisTree;
 import parser.CFG;
 import parser.CFGProduction;
 import symbol.*;
@@ -22,35 +23,16 @@ public class Translator implements MovementCreator {
 
     private Map<CFGProduction, List<AnalysisTree>> movementsMap = new HashMap<>();
 
-    public Map<String, Set<String>> getTempStorages() {
-        Map<String, Set<String> > results = new HashMap<>();
-        for(String key: tempStorages.keySet()){
-            results.put(key, new HashSet<>());
-            for (int i = 0; i < tempStorages.get(key); ++i){
-                results.get(key).add("t_" + key + String.valueOf(i));
-            }
-        }
-        return results;
-    }
-
-    private Map<String, Integer> tempStorages = new HashMap<>();
+    //动作树在加入时就解析为指令，分析树节点的产生式与这里的键是同一个对象
+    private Map<CFGProduction, Instruction[]> programs = new IdentityHashMap<>();
 
     private Lexer lexer;
 
-    public Translator() throws PLDLParsingException, PLDLAnalysisException {
-        List<Map.Entry<String, NFA>> terminatorsNFA = new ArrayList<>();
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$$", NFA.fastNFA("$$")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$", NFA.fastNFA("$")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("(", NFA.fastNFA("(")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>(")", NFA.fastNFA(")")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("=", NFA.fastNFA("=")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("newTemp", NFA.fastNFA("newTemp")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("print", NFA.fastNFA("print")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("go", NFA.fastNFA("go")));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("val", new SimpleREApply("[a-zA-Z][a-zA-Z0-9]*").getNFA()));
-        terminatorsNFA.add(new AbstractMap.SimpleEntry<>("num", new SimpleREApply("[1-9][0-9]*|0").getNFA()));
+    //动作语句中的属性名登记在所属语言的属性表中
+    private final Attributes attributes;
 
-        lexer = new Lexer(terminatorsNFA, null);
+    public Translator(Attributes attributes) throws PLDLParsingException, PLDLAnalysisException {
+        this.attributes = attributes;
         emptyChars.add(' ');
         emptyChars.add('\t');
         emptyChars.add('\n');
@@ -59,12 +41,36 @@ public class Translator implements MovementCreator {
         setCFG();
     }
 
+    /* 动作语句的词法分析器只在需要解析动作语句时构建，从编译产物加载时不需要 */
+    private Lexer getLexer() throws PLDLParsingException, PLDLAnalysisException {
+        if (lexer == null) {
+            List<Map.Entry<String, NFA>> terminatorsNFA = new ArrayList<>();
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$$", NFA.fastNFA("$$")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("$", NFA.fastNFA("$")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("(", NFA.fastNFA("(")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>(")", NFA.fastNFA(")")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("=", NFA.fastNFA("=")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("newTemp", NFA.fastNFA("newTemp")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("print", NFA.fastNFA("print")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("go", NFA.fastNFA("go")));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("val", new SimpleREApply("[a-zA-Z][a-zA-Z0-9]*").getNFA()));
+            terminatorsNFA.add(new AbstractMap.SimpleEntry<>("num", new SimpleREApply("[1-9][0-9]*|0").getNFA()));
+            lexer = new Lexer(terminatorsNFA, null);
+            lexer.setSymbolPool(cfg.getSymbolPool());
+        }
+        return lexer;
+    }
+
     public AnalysisTree getMovementTree(String str) throws PLDLAnalysisException, PLDLParsingException {
-        List<Symbol> symbols = lexer.analysis(str, emptyChars);
-        return cfg.getTable().getAnalysisTree(symbols);
+        TokenBuffer tokens = getLexer().analysis(str, emptyChars);
+        return cfg.getTable().getAnalysisTree(tokens);
     }
 
 
+    public CFG getCFG() {
+        return cfg;
+    }
+
     protected void setCFG() {
         Set<String> terminatorStrs = new HashSet<>(Arrays.asList("$$", "$", "(", ")", "=", "newTemp", "val", "num", "print", "go", "+"));
         Set<String> unterminatorStrs = new HashSet<>(Arrays.asList("H", "Var", "E", "G"));
@@ -77,125 +83,67 @@ public class Translator implements MovementCreator {
 
                         /* For Debug */
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) throws PLDLAnalysisException {
-                            AnalysisNode rightTreeNode = (AnalysisNode) movementTree.getChildren().get(2).getValue().getProperties().get("rightTreeNode");
-                            Symbol rightTreeNodeValue = rightTreeNode.getValue();
-                            String name = (String) movementTree.getChildren().get(2).getValue().getProperties().get("name");
-                            if (rightTreeNodeValue.getProperties().containsKey(name)) {
-                                System.out.println(rightTreeNodeValue.getProperties().get(name));
-                            }
-                            else {
-                                throw new PLDLAnalysisException("节点属性不存在。节点" + rightTreeNodeValue + "不具有属性" + name, null);
-                            }
+                        public Object lower(Object[] children) {
+                            return Instruction.print((Operand) children[2]);
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("E -> go ( $ num )", pool)) {
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) throws PLDLParsingException, PLDLAnalysisException {
-                            int num = Integer.parseInt((String) movementTree.getChildren().get(3).getValue().getProperties().get("val"));
-                            --num;
-                            if (num < 0 || num >= analysisTree.getChildren().size()) {
-                                throw new PLDLParsingException("$后面的数字超出这条产生式右部元素的范围", null);
-                            }
-                            AnalysisNode rightTreeNode = analysisTree.getChildren().get(num);
-                            List<AnalysisTree> trees = movementsMap.get(rightTreeNode.getProduction());
-                            if (trees != null) {
-                                doTreeMovement(movementsMap.get(rightTreeNode.getProduction()), rightTreeNode);
-                            }
+                        public Object lower(Object[] children) {
+                            return Instruction.go(Integer.parseInt((String) children[3]) - 1);
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("H -> Var ( val )", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) {
-                            String name = (String) movementTree.getChildren().get(2).getValue().getProperties().get("val");
-                            AnalysisNode rightTreeNode = (AnalysisNode) movementTree.getChildren().get(0).getValue().getProperties().get("rightTreeNode");
-                            movementTree.getValue().addProperty("rightTreeNode", rightTreeNode);   //右树节点
-                            movementTree.getValue().addProperty("name", name);  //索引名
+                        public Object lower(Object[] children) {
+                            //右树节点和索引名
+                            return ((Operand) children[0]).withAttribute((String) children[2]);
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("G -> G + H", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) {
-                            AnalysisNode G2rightTreeNode = (AnalysisNode) movementTree.getChildren().get(0).getValue().getProperties().get("rightTreeNode");   //右树节点
-                            String G2name = (String) movementTree.getChildren().get(0).getValue().getProperties().get("name");   //索引名
-                            String G2Value = (String) G2rightTreeNode.getValue().getProperties().get(G2name);
-                            AnalysisNode HrightTreeNode = (AnalysisNode) movementTree.getChildren().get(2).getValue().getProperties().get("rightTreeNode");   //右树节点
-                            String Hname = (String) movementTree.getChildren().get(2).getValue().getProperties().get("name");   //索引名
-                            String HValue = (String) HrightTreeNode.getValue().getProperties().get(Hname);
-
-                            AnalysisNode node = new AnalysisNode(new Terminator(null));
-                            node.getValue().addProperty("val", G2Value + HValue);
-                            movementTree.getValue().addProperty("rightTreeNode", node);   //右树节点
-                            movementTree.getValue().addProperty("name", "val");  //索引名
+                        public Object lower(Object[] children) {
+                            Operand[] G2 = (Operand[]) children[0];
+                            Operand[] result = Arrays.copyOf(G2, G2.length + 1);
+                            result[G2.length] = (Operand) children[2];
+                            return result;
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("G -> H", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) {
-                            AnalysisNode HrightTreeNode = (AnalysisNode) movementTree.getChildren().get(0).getValue().getProperties().get("rightTreeNode");   //右树节点
-                            String Hname = (String) movementTree.getChildren().get(0).getValue().getProperties().get("name");   //索引名
-                            movementTree.getValue().addProperty("rightTreeNode", HrightTreeNode);   //右树节点
-                            movementTree.getValue().addProperty("name", Hname);  //索引名
+                        public Object lower(Object[] children) {
+                            return new Operand[]{(Operand) children[0]};
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("E -> H = newTemp ( val )", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) {
-                            String name = (String) movementTree.getChildren().get(4).getValue().getProperties().get("val");
-                            if (tempStorages.containsKey(name)){
-                                tempStorages.put(name, tempStorages.get(name) + 1);
-                            }
-                            else {
-                                tempStorages.put(name, 0);
-                            }
-
-                            //键值对
-                            AnalysisNode HrightTreeNode = (AnalysisNode) movementTree.getChildren().get(0).getValue().getProperties().get("rightTreeNode");   //右树节点
-                            String H1name = (String) movementTree.getChildren().get(0).getValue().getProperties().get("name");   //索引名
-                            HrightTreeNode.getValue().getProperties().put(H1name, "t_" + name + String.valueOf(tempStorages.get(name)));
+                        public Object lower(Object[] children) {
+                            return Instruction.newTemp((Operand) children[0], (String) children[4]);
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("Var -> $$", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) {
-                            //Var这个左树节点中存储的是右树节点
-                            movementTree.getValue().addProperty("rightTreeNode", analysisTree);
+                        public Object lower(Object[] children) {
+                            return Operand.self();
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("Var -> $ num", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) throws PLDLParsingException {
-                            int num = Integer.parseInt((String) movementTree.getChildren().get(1).getValue().getProperties().get("val"));
-                            --num;
-                            if (num < 0 || num >= analysisTree.getChildren().size()) {
-                                throw new PLDLParsingException("$后面的数字超出这条产生式右部元素的范围", null);
-                            }
-                            AnalysisNode rightTreeNode = analysisTree.getChildren().get(num);
-                            movementTree.getValue().addProperty("rightTreeNode", rightTreeNode);
+                        public Object lower(Object[] children) {
+                            return Operand.child(Integer.parseInt((String) children[1]) - 1);
                         }
                     },
                     new MovementProduction(CFGProduction.getCFGProductionFromCFGString("E -> H = G", pool)) {
 
                         @Override
-                        public void doMovement(AnalysisNode movementTree, AnalysisNode analysisTree) throws PLDLAnalysisException {
-                            //键值对
-                            AnalysisNode H1rightTreeNode = (AnalysisNode) movementTree.getChildren().get(0).getValue().getProperties().get("rightTreeNode");   //右树节点
-                            String H1name = (String) movementTree.getChildren().get(0).getValue().getProperties().get("name");   //索引名
-                            AnalysisNode H2rightTreeNode = (AnalysisNode) movementTree.getChildren().get(2).getValue().getProperties().get("rightTreeNode");
-                            String H2name = (String) movementTree.getChildren().get(2).getValue().getProperties().get("name");
-                            if (H2rightTreeNode.getValue().getProperties().containsKey(H2name)) {
-                                H1rightTreeNode.getValue().getProperties().put(H1name, H2rightTreeNode.getValue().getProperties().get(H2name));
-                            }
-                            else {
-                                throw new PLDLAnalysisException("节点属性不存在。节点" + H2rightTreeNode.getValue() + "不具有属性" + H2name + "," +
-                                        " 不能赋值给节点" + H1rightTreeNode.getValue() + "的属性" + H1name, null);
-                            }
+                        public Object lower(Object[] children) {
+                            return Instruction.assign((Operand) children[0], (Operand[]) children[2]);
                         }
                     }
             ));
@@ -206,33 +154,95 @@ public class Translator implements MovementCreator {
 
     }
 
-    public void doTreesMovements(AnalysisTree rootTree) throws PLDLParsingException, PLDLAnalysisException {
-        List<AnalysisTree> trees = movementsMap.get(rootTree.getRoot().getProduction());
-        if (trees != null) {
-            doTreeMovement(trees, rootTree.getRoot());
+    /* go语句不递归调用，而是把子节点压入栈中，因此分析树再深也不会栈溢出 */
+    public void doTreesMovements(FlatAnalysisTree tree, MovementContext context) throws PLDLParsingException, PLDLAnalysisException {
+        AnalysisCursor cursor = tree.getCursor();
+        int[] nodeStack = new int[64];
+        Instruction[][] programStack = new Instruction[64][];
+        int[] pcStack = new int[64];
+        int top = -1;
+        Instruction[] rootProgram = programs.get(tree.getProduction(tree.getRoot()));
+        if (rootProgram != null) {
+            top = 0;
+            nodeStack[0] = tree.getRoot();
+            programStack[0] = rootProgram;
+            pcStack[0] = 0;
         }
-    }
-
-    private void doTreeMovement(List<AnalysisTree> movementTrees, AnalysisNode analysisNode) throws PLDLParsingException, PLDLAnalysisException {
-        for (AnalysisTree movementTree : movementTrees) {
-            rr_doTreeMovement(movementTree.getRoot(), analysisNode);
+        while (top >= 0) {
+            int node = nodeStack[top];
+            Instruction[] program = programStack[top];
+            if (pcStack[top] == program.length) {
+                programStack[top--] = null;
+                continue;
+            }
+            Instruction instruction = program[pcStack[top]++];
+            try {
+                if (instruction.getCode() == Instruction.GO) {
+                    int childNode = Operand.getChild(tree, node, instruction.getChild());
+                    Instruction[] childProgram = programs.get(tree.getProduction(childNode));
+                    if (childProgram != null) {
+                        if (++top == nodeStack.length) {
+                            nodeStack = Arrays.copyOf(nodeStack, top * 2);
+                            programStack = Arrays.copyOf(programStack, top * 2);
+                            pcStack = Arrays.copyOf(pcStack, top * 2);
+                        }
+                        nodeStack[top] = childNode;
+                        programStack[top] = childProgram;
+                        pcStack[top] = 0;
+                    }
+                }
+                else {
+                    cursor.moveTo(node);
+                    doMovement(instruction, cursor, context);
+                }
+            }
+            catch (PLDLAnalysisException e){
+                throw new PLDLAnalysisException("在" + tree.getProduction(node), e);
+            }
         }
     }
 
-    private void rr_doTreeMovement(AnalysisNode movementNode, AnalysisNode analysisNode) throws PLDLParsingException, PLDLAnalysisException {
-        if (movementNode.getChildren() != null) {
-            for (AnalysisNode childNode : movementNode.getChildren()) {
-                if (childNode.getValue().getAbstractSymbol().getType() != AbstractSymbol.TERMINATOR) {
-                    rr_doTreeMovement(childNode, analysisNode);
+    private void doMovement(Instruction instruction, AnalysisCursor cursor, MovementContext context) throws PLDLParsingException, PLDLAnalysisException {
+        FlatAnalysisTree tree = cursor.getTree();
+        Operand[] operands = instruction.getOperands();
+        switch (instruction.getCode()) {
+            case Instruction.PRINT: {
+                int rightTreeNode = operands[0].getNode(cursor);
+                Object value = tree.getSlot(rightTreeNode, operands[0].getSlot());
+                if (value != null) {
+                    System.out.println(value);
                 }
+                else {
+                    throw new PLDLAnalysisException("节点属性不存在。节点" + tree.getSymbol(rightTreeNode) + "不具有属性" + operands[0].getAttribute(), null);
+                }
+                break;
+            }
+            case Instruction.NEW_TEMP: {
+                tree.setSlot(operands[0].getNode(cursor), operands[0].getSlot(), context.newTemp(instruction.getName()));
+                break;
+            }
+            case Instruction.ASSIGN: {
+                int H1rightTreeNode = operands[0].getNode(cursor);
+                Object value;
+                if (operands.length == 2) {
+                    int H2rightTreeNode = operands[1].getNode(cursor);
+                    value = tree.getSlot(H2rightTreeNode, operands[1].getSlot());
+                    if (value == null) {
+                        throw new PLDLAnalysisException("节点属性不存在。节点" + tree.getSymbol(H2rightTreeNode) + "不具有属性" + operands[1].getAttribute() + "," +
+                                " 不能赋值给节点" + tree.getSymbol(H1rightTreeNode) + "的属性" + operands[0].getAttribute(), null);
+                    }
+                }
+                else {
+                    //G -> G + H 把各个属性值拼接起来
+                    StringBuilder builder = new StringBuilder();
+                    for (int i = 1; i < operands.length; ++i) {
+                        builder.append((String) operands[i].getValue(cursor));
+                    }
+                    value = builder.toString();
+                }
+                tree.setSlot(H1rightTreeNode, operands[0].getSlot(), value);
+                break;
             }
-        }
-        try {
-            MovementProduction movementProduction = (MovementProduction) movementNode.getProduction();
-            movementProduction.doMovement(movementNode, analysisNode);
-        }
-        catch (PLDLAnalysisException e){
-            throw new PLDLAnalysisException("在" + analysisNode.getProduction(), e);
         }
     }
 
@@ -240,9 +250,10 @@ public class Translator implements MovementCreator {
         return movementsMap;
     }
 
-    public void checkMovementsMap(){
+    /* 返回检查时产生的警告 */
+    public List<String> checkMovementsMap(){
+        List<String> warnings = new ArrayList<>();
         for (CFGProduction production: movementsMap.keySet()){
-            List<AnalysisTree> movementTrees = movementsMap.get(production);
             Set<Integer> unterminatorIndices = new HashSet<>();
             Set<Integer> trulyWentIndices = new HashSet<>();
             for (int i = 0; i < production.getAfterAbstractSymbols().size(); ++i){
@@ -250,28 +261,25 @@ public class Translator implements MovementCreator {
                     unterminatorIndices.add(i);
                 }
             }
-            for (AnalysisTree movementTree : movementTrees) {
-                try {
-                    if (movementTree.getRoot().getProduction().getAfterAbstractSymbols().get(0).equals(cfg.getSymbolPool().getTerminator("go"))) {
-                        String numVal = (String) movementTree.getRoot().getChildren().get(3).getValue().getProperties().get("val");
-                        trulyWentIndices.add(Integer.valueOf(numVal) - 1);
-                    }
-                } catch (PLDLParsingException e) {
-                    e.printStackTrace();
+            for (Instruction instruction : programs.get(production)) {
+                if (instruction.getCode() == Instruction.GO) {
+                    trulyWentIndices.add(instruction.getChild());
                 }
             }
             unterminatorIndices.removeAll(trulyWentIndices);
             if (unterminatorIndices.size() > 0){
                 for (int i: unterminatorIndices){
-                    PLDLParsingWarning.setLog("在" + production + "中，非终结符节点" + String.valueOf(i + 1) + "("
+                    PLDLParsingWarning.setLog(warnings, "在" + production + "中，非终结符节点" + String.valueOf(i + 1) + "("
                         + production.getAfterAbstractSymbols().get(i) + ")不会被遍历，如果你忘记使用go语句，请考虑使用。" +
                         "否则将无法获得该非终结符的综合属性。");
                 }
             }
         }
+        return warnings;
     }
 
-    public void addToMovementsMap(CFGProduction production, List<AnalysisTree> trees){
+    public void addToMovementsMap(CFGProduction production, List<AnalysisTree> trees) throws PLDLParsingException {
         movementsMap.put(production, trees);
+        programs.put(production, MovementProduction.lower(trees, attributes));
     }
 }
@@ -0,0 +1,63 @@
+package util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryIO {
+
+    public static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        out.writeInt(ints.length);
+        for (int i : ints) {
+            out.writeInt(i);
+        }
+    }
+
+    public static int[] readInts(ByteBuffer buffer) {
+        int[] result = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + result.length * 4);
+        return result;
+    }
+
+    public static void writeChars(DataOutputStream out, char[] chars) throws IOException {
+        out.writeInt(chars.length);
+        for (char c : chars) {
+            out.writeChar(c);
+        }
+    }
+
+    public static char[] readChars(ByteBuffer buffer) {
+        char[] result = new char[buffer.getInt()];
+        buffer.asCharBuffer().get(result);
+        buffer.position(buffer.position() + result.length * 2);
+        return result;
+    }
+
+    public static void writeLongs(DataOutputStream out, long[] longs) throws IOException {
+        out.writeInt(longs.length);
+        for (long l : longs) {
+            out.writeLong(l);
+        }
+    }
+
+    public static long[] readLongs(ByteBuffer buffer) {
+        long[] result = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(result);
+        buffer.position(buffer.position() + result.length * 8);
+        return result;
+    }
+}
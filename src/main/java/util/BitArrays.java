@@ -0,0 +1,64 @@
+package util;
+
+/* 以long数组表示的位集合，第i位在 words[i >>> 6] 的第 i & 63 位 */
+public class BitArrays {
+
+    public static long[] create(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    public static boolean get(long[] words, int index) {
+        int word = index >>> 6;
+        return word < words.length && (words[word] & 1L << index) != 0;
+    }
+
+    public static void set(long[] words, int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    /* target |= source，返回target是否有变化 */
+    public static boolean or(long[] target, long[] source) {
+        boolean changed = false;
+        for (int i = 0; i < source.length; ++i) {
+            long word = target[i] | source[i];
+            if (word != target[i]) {
+                target[i] = word;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public static int cardinality(long[] words) {
+        int result = 0;
+        for (long word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    public static boolean isEmpty(long[] words) {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* 从from开始的第一个为1的位，没有时返回-1 */
+    public static int nextSetBit(long[] words, int from) {
+        int word = from >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & -1L << from;
+        while (bits == 0) {
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+}
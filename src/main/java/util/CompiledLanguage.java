@@ -0,0 +1,91 @@
+package util;
+
+import exception.PLDLAnalysisException;
+import exception.PLDLParsingException;
+import generator.Generator;
+import generator.ResultTuple4;
+import generator.Tuple4Sink;
+import lexer.Lexer;
+import parser.FlatAnalysisTree;
+import parser.CFG;
+import parser.TransformTable;
+import symbol.Attributes;
+import translator.MovementContext;
+import translator.Translator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Set;
+
+/* 编译产物构建完成后不再修改，编译代码时的可变状态都在分析树和 MovementContext 中，因此可以在多个线程间共享 */
+public class CompiledLanguage {
+
+    private final Lexer lexer;
+
+    private final CFG cfg;
+
+    private final TransformTable table;
+
+    private final Translator translator;
+
+    private final Generator generator;
+
+    //属性名与槽位的对应关系，分析树节点的属性数组按它的大小分配
+    private final Attributes attributes;
+
+    public CompiledLanguage(Lexer lexer, CFG cfg, TransformTable table, Translator translator, Generator generator, Attributes attributes) {
+        this.lexer = lexer;
+        this.cfg = cfg;
+        lexer.setSymbolPool(cfg.getSymbolPool());
+        this.table = table;
+        this.translator = translator;
+        this.generator = generator;
+        this.attributes = attributes;
+    }
+
+    public Lexer getLexer() {
+        return lexer;
+    }
+
+    public CFG getCFG() {
+        return cfg;
+    }
+
+    public TransformTable getTable() {
+        return table;
+    }
+
+    public Translator getTranslator() {
+        return translator;
+    }
+
+    public Generator getGenerator() {
+        return generator;
+    }
+
+    public Attributes getAttributes() {
+        return attributes;
+    }
+
+    /* 构建文法和分析表时产生的警告，从编译产物文件读入时分析表不再构建，因此没有分析表的警告 */
+    public List<String> getWarnings() {
+        return cfg.getWarnings();
+    }
+
+    public FlatAnalysisTree parse(Reader reader, Set<Character> emptyChars) throws PLDLAnalysisException, PLDLParsingException, IOException {
+        return table.getFlatAnalysisTree(lexer.getTokenStream(reader, emptyChars), attributes);
+    }
+
+    public void compile(Reader reader, Set<Character> emptyChars, Tuple4Sink sink) throws PLDLAnalysisException, PLDLParsingException, IOException {
+        FlatAnalysisTree tree = parse(reader, emptyChars);
+        translator.doTreesMovements(tree, new MovementContext());
+        generator.doTreesMovements(tree, sink);
+    }
+
+    public ResultTuple4 compile(Reader reader, Set<Character> emptyChars) throws PLDLAnalysisException, PLDLParsingException, IOException {
+        ResultTuple4 result = new ResultTuple4();
+        compile(reader, emptyChars, result);
+        return result;
+    }
+}
@@ -189,7 +189,7 @@ public class Graphics extends JFrame {
                     File selectedFile = fileChooser.getSelectedFile();// 获得选中的文件对象
                     try {
                         consoleApplication.LLEnd(new FileOutputStream(selectedFile));
-                    } catch (FileNotFoundException e) {
+                    } catch (IOException e) {
                         e.printStackTrace();
                         JOptionPane.showMessageDialog(null, e.getStackTrace(), "错误", JOptionPane.PLAIN_MESSAGE);
                     }
@@ -0,0 +1,331 @@
+package util;
+
+import exception.PLDLAnalysisException;
+import exception.PLDLParsingException;
+import generator.Generator;
+import lexer.CompiledDFA;
+import lexer.Lexer;
+import parser.*;
+import symbol.*;
+import translator.Translator;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/*
+ * 编译产物格式（大端序）：
+ * 魔数、版本号、XML源文件哈希，
+ * 符号表与产生式，语法分析表，词法分析器DFA，
+ * 每个产生式的语义动作树与四元式生成动作树。
+ */
+public class LanguageArchive {
+
+    private static final int MAGIC = 0x4c59524e;
+
+    public static final int VERSION = 5;
+
+    private static final byte NODE_TERMINATOR = 0, NODE_UNTERMINATOR = 1;
+
+    public static byte[] getSourceHash(byte[] source, int tableMode, boolean keywordTable) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source);
+            digest.update((byte) tableMode);
+            digest.update((byte) (keywordTable ? 1 : 0));
+            digest.update((byte) VERSION);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static File getArchiveFile(File directory, byte[] sourceHash) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : sourceHash) {
+            name.append(String.format("%02x", b));
+        }
+        name.append(".lyc");
+        return new File(directory, name.toString());
+    }
+
+    public static void write(CompiledLanguage language, byte[] sourceHash, File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sourceHash.length);
+            out.write(sourceHash);
+
+            CFG cfg = language.getCFG();
+            SymbolPool pool = cfg.getSymbolPool();
+            out.writeInt(cfg.getTableMode());
+            BinaryIO.writeString(out, cfg.getMarkin().getName());
+            List<AbstractTerminator> terminators = new ArrayList<>();
+            for (AbstractTerminator terminator : pool.getTerminators()) {
+                if (!terminator.getName().equals("null")) {
+                    terminators.add(terminator);
+                }
+            }
+            out.writeInt(terminators.size());
+            for (AbstractTerminator terminator : terminators) {
+                BinaryIO.writeString(out, terminator.getName());
+                out.writeBoolean(terminator.getIsComment());
+            }
+            out.writeInt(pool.getUnterminators().size());
+            for (AbstractUnterminator unterminator : pool.getUnterminators()) {
+                BinaryIO.writeString(out, unterminator.getName());
+            }
+
+            List<CFGProduction> productions = cfg.getCFGProductions();
+            Map<CFGProduction, Integer> productionIndexes = new IdentityHashMap<>();
+            out.writeInt(productions.size());
+            for (CFGProduction production : productions) {
+                productionIndexes.put(production, productionIndexes.size());
+                out.writeInt(production.getSerialNumber());
+                BinaryIO.writeString(out, production.getBeforeAbstractSymbol().getName());
+                out.writeInt(production.getAfterAbstractSymbols().size());
+                for (AbstractSymbol symbol : production.getAfterAbstractSymbols()) {
+                    out.writeInt(symbol.getType());
+                    BinaryIO.writeString(out, symbol.getName());
+                }
+            }
+
+            TransformTable table = language.getTable();
+            List<Integer> endStatements = new ArrayList<>(table.getEndStatements());
+            out.writeInt(endStatements.size());
+            for (int endStatement : endStatements) {
+                out.writeInt(endStatement);
+            }
+            out.writeInt(table.getTableMap().size());
+            for (Map.Entry<Integer, Map<AbstractSymbol, Movement>> row : table.getTableMap().entrySet()) {
+                out.writeInt(row.getKey());
+                out.writeInt(row.getValue().size());
+                for (Map.Entry<AbstractSymbol, Movement> entry : row.getValue().entrySet()) {
+                    Movement movement = entry.getValue();
+                    out.writeInt(movement.getMovement());
+                    BinaryIO.writeString(out, entry.getKey().getName());
+                    if (movement.getMovement() == Movement.REGRESSION) {
+                        out.writeInt(productionIndexes.get(movement.getRegressionProduction()));
+                    }
+                    else {
+                        out.writeInt(movement.getShiftTo());
+                    }
+                }
+            }
+
+            language.getLexer().getCompiledDFA().write(out);
+
+            Translator translator = language.getTranslator();
+            Generator generator = language.getGenerator();
+            Map<CFGProduction, Integer> translatorIndexes = getIndexes(translator.getCFG().getCFGProductions());
+            Map<CFGProduction, Integer> generatorIndexes = getIndexes(generator.getCFG().getCFGProductions());
+            for (CFGProduction production : productions) {
+                writeTrees(out, translator.getMovementsMap().get(production), translatorIndexes);
+                writeTrees(out, generator.getBeforeMovementsMap().get(production), generatorIndexes);
+                writeTrees(out, generator.getAfterMovementsMap().get(production), generatorIndexes);
+            }
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /* 文件头与哈希不匹配时返回null */
+    public static CompiledLanguage read(File file, byte[] sourceHash) throws IOException, PLDLParsingException, PLDLAnalysisException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] hash = new byte[buffer.getInt()];
+            buffer.get(hash);
+            if (!Arrays.equals(hash, sourceHash)) {
+                return null;
+            }
+            return read(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("编译产物 " + file + " 不完整。", e);
+        }
+    }
+
+    private static CompiledLanguage read(ByteBuffer buffer) throws PLDLParsingException, PLDLAnalysisException {
+        int tableMode = buffer.getInt();
+        String markinStr = BinaryIO.readString(buffer);
+        Set<String> terminatorStrs = new HashSet<>();
+        Set<String> commentStrs = new HashSet<>();
+        int terminatorCount = buffer.getInt();
+        for (int i = 0; i < terminatorCount; ++i) {
+            String name = BinaryIO.readString(buffer);
+            if (buffer.get() != 0) {
+                commentStrs.add(name);
+            }
+            else {
+                terminatorStrs.add(name);
+            }
+        }
+        Set<String> unterminatorStrs = new HashSet<>();
+        int unterminatorCount = buffer.getInt();
+        for (int i = 0; i < unterminatorCount; ++i) {
+            unterminatorStrs.add(BinaryIO.readString(buffer));
+        }
+        SymbolPool pool = new SymbolPool();
+        pool.initTerminatorString(terminatorStrs);
+        pool.initUnterminatorString(unterminatorStrs);
+        for (String comment : commentStrs) {
+            pool.addCommentStr(comment);
+        }
+
+        List<CFGProduction> productions = new ArrayList<>();
+        int productionCount = buffer.getInt();
+        for (int i = 0; i < productionCount; ++i) {
+            CFGProduction production = new CFGProduction();
+            production.setSerialNumber(buffer.getInt());
+            production.setBeforeAbstractSymbol(pool.getUnterminator(BinaryIO.readString(buffer)));
+            List<AbstractSymbol> afterAbstractSymbols = new ArrayList<>();
+            int afterCount = buffer.getInt();
+            for (int j = 0; j < afterCount; ++j) {
+                int type = buffer.getInt();
+                String name = BinaryIO.readString(buffer);
+                afterAbstractSymbols.add(type == AbstractSymbol.TERMINATOR ? pool.getTerminator(name) : pool.getUnterminator(name));
+            }
+            production.setAfterAbstractSymbols(afterAbstractSymbols);
+            productions.add(production);
+        }
+        CFG cfg = new CFG(pool, productions, markinStr);
+        cfg.setTableMode(tableMode);
+
+        TransformTable table = new TransformTable(cfg);
+        int endStatementCount = buffer.getInt();
+        for (int i = 0; i < endStatementCount; ++i) {
+            table.addEndStatement(buffer.getInt());
+        }
+        int statementCount = buffer.getInt();
+        for (int i = 0; i < statementCount; ++i) {
+            int statement = buffer.getInt();
+            int entryCount = buffer.getInt();
+            for (int j = 0; j < entryCount; ++j) {
+                int movement = buffer.getInt();
+                String name = BinaryIO.readString(buffer);
+                int value = buffer.getInt();
+                if (movement == Movement.REGRESSION) {
+                    table.add(statement, pool.getTerminator(name), productions.get(value));
+                }
+                else if (movement == Movement.GOTO) {
+                    table.add(statement, pool.getUnterminator(name), value);
+                }
+                else {
+                    table.add(statement, pool.getTerminator(name), value);
+                }
+            }
+        }
+
+        Lexer lexer = new Lexer(CompiledDFA.read(buffer));
+
+        //属性槽位按产生式的顺序重新登记，与构建编译产物时的编号相同
+        Attributes attributes = new Attributes();
+        Translator translator = new Translator(attributes);
+        Generator generator = new Generator(attributes);
+        List<CFGProduction> translatorProductions = translator.getCFG().getCFGProductions();
+        List<CFGProduction> generatorProductions = generator.getCFG().getCFGProductions();
+        for (CFGProduction production : productions) {
+            translator.addToMovementsMap(production, readTrees(buffer, translator.getCFG(), translatorProductions));
+            List<AnalysisTree> beforeTrees = readTrees(buffer, generator.getCFG(), generatorProductions);
+            List<AnalysisTree> afterTrees = readTrees(buffer, generator.getCFG(), generatorProductions);
+            generator.addToMovementsMap(production, beforeTrees, afterTrees);
+        }
+        return new CompiledLanguage(lexer, cfg, table, translator, generator, attributes);
+    }
+
+    private static Map<CFGProduction, Integer> getIndexes(List<CFGProduction> productions) {
+        Map<CFGProduction, Integer> result = new IdentityHashMap<>();
+        for (CFGProduction production : productions) {
+            result.put(production, result.size());
+        }
+        return result;
+    }
+
+    private static void writeTrees(DataOutputStream out, List<AnalysisTree> trees, Map<CFGProduction, Integer> indexes) throws IOException {
+        if (trees == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(trees.size());
+        for (AnalysisTree tree : trees) {
+            writeNode(out, tree.getRoot(), indexes);
+        }
+    }
+
+    private static void writeNode(DataOutputStream out, AnalysisNode node, Map<CFGProduction, Integer> indexes) throws IOException {
+        if (node.getProduction() != null) {
+            out.writeByte(NODE_UNTERMINATOR);
+            out.writeInt(indexes.get(node.getProduction()));
+            out.writeInt(node.getChildren().size());
+            for (AnalysisNode child : node.getChildren()) {
+                writeNode(out, child, indexes);
+            }
+        }
+        else {
+            out.writeByte(NODE_TERMINATOR);
+            BinaryIO.writeString(out, node.getValue().getAbstractSymbol().getName());
+            Map<String, Object> properties = node.getValue().getProperties();
+            out.writeInt(properties.size());
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                BinaryIO.writeString(out, property.getKey());
+                BinaryIO.writeString(out, String.valueOf(property.getValue()));
+            }
+        }
+    }
+
+    private static List<AnalysisTree> readTrees(ByteBuffer buffer, CFG cfg, List<CFGProduction> productions) throws PLDLParsingException {
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<AnalysisTree> result = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            AnalysisTree tree = new AnalysisTree();
+            tree.setRoot(readNode(buffer, cfg, productions));
+            result.add(tree);
+        }
+        return result;
+    }
+
+    private static AnalysisNode readNode(ByteBuffer buffer, CFG cfg, List<CFGProduction> productions) throws PLDLParsingException {
+        if (buffer.get() == NODE_UNTERMINATOR) {
+            CFGProduction production = productions.get(buffer.getInt());
+            AnalysisNode node = new AnalysisNode(new Unterminator((AbstractUnterminator) production.getBeforeAbstractSymbol()));
+            node.setProduction(production);
+            node.setChildren(new ArrayList<>());
+            int childCount = buffer.getInt();
+            for (int i = 0; i < childCount; ++i) {
+                AnalysisNode child = readNode(buffer, cfg, productions);
+                child.setParent(node);
+                node.getChildren().add(child);
+            }
+            return node;
+        }
+        else {
+            Terminator terminator = new Terminator(cfg.getSymbolPool().getTerminator(BinaryIO.readString(buffer)));
+            int propertyCount = buffer.getInt();
+            for (int i = 0; i < propertyCount; ++i) {
+                String key = BinaryIO.readString(buffer);
+                terminator.addProperty(key, BinaryIO.readString(buffer));
+            }
+            return new AnalysisNode(terminator);
+        }
+    }
+}
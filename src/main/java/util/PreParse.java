@@ -2,7 +2,7 @@ package util;
 
 import exception.PLDLAnalysisException;
 import exception.PLDLParsingException;
-import exception.PLDLParsingWarning;
+import lexer.BannedChars;
 import lexer.NFA;
 import lexer.SimpleREApply;
 import org.dom4j.Document;
@@ -12,6 +12,7 @@ import org.dom4j.io.SAXReader;
 import parser.AnalysisTree;
 import parser.CFG;
 import parser.CFGProduction;
+import symbol.Attributes;
 import symbol.SymbolPool;
 import generator.Generator;
 import translator.MovementCreator;
@@ -23,6 +24,10 @@ import java.util.*;
 public class PreParse {
 
     List<Map.Entry<String, NFA>> terminatorsNFA = new ArrayList<>();
+    Map<String, BannedChars> bannedCharsMap = new HashMap<>();
+    Set<String> keywords = new HashSet<>();
+    Set<String> comments = new HashSet<>();
+    Attributes attributes = null;
     Translator translator = null;
     Generator generator = null;
     CFG cfg = null;
@@ -46,12 +51,11 @@ public class PreParse {
     }
 
     public PreParse(InputStream inputStream, String markinStr) throws PLDLParsingException, PLDLAnalysisException, DocumentException {
-        translator = new Translator();
-        generator = new Generator();
+        attributes = new Attributes();
+        translator = new Translator(attributes);
+        generator = new Generator(attributes);
         Set<String> terminators = new HashSet<>();
         Set<String> unterminators = new HashSet<>();
-        Set<String> comments = new HashSet<>();
-        Map<String, Set<String>> bannedStrMap = new HashMap<>();
         List<String> prods = new ArrayList<>();
         List<List<AnalysisTree> > movementsTrees = new ArrayList<>();
         List<List<AnalysisTree>> beforeGenerationsTrees = new ArrayList<>();
@@ -107,6 +111,7 @@ public class PreParse {
                         if (!after.equals("null") && !comments.contains(after.trim()) &&
                                 !unterminators.contains(after.trim()) && !terminators.contains(after.trim())) {
                             terminatorsNFA.add(new AbstractMap.SimpleEntry<>(after.trim(), NFA.fastNFA(after.trim())));
+                            keywords.add(after.trim());
                             terminators.add(after.trim());
                         }
                     }
@@ -118,26 +123,10 @@ public class PreParse {
                     String regex = e.element("regex").getText().trim();
                     terminatorsNFA.add(new AbstractMap.SimpleEntry<>(name, new SimpleREApply(regex).getNFA()));
                     if (e.element("ban") != null){
-                        String bannedStrs = e.element("ban").getText().trim();
-                        Set<String> bannedStrsSet = new HashSet<>();
-                        for (char c : bannedStrs.toCharArray()){
-                            bannedStrsSet.add(String.valueOf(c));
-                        }
-                        bannedStrMap.put(name, bannedStrsSet);
+                        bannedCharsMap.put(name, BannedChars.ban(e.element("ban").getText().trim()));
                     }
                     else if (e.element("allow") != null){
-                        PLDLParsingWarning.setLog("There is likely to be a significant performance cost in making these calls.");
-                        String bannedStrs = e.element("ban").getText().trim();
-                        Set<String> allStrsSet = new HashSet<>();
-                        for (char c = 0x0; c < 0xff; ++c){
-                            allStrsSet.add(String.valueOf(c));
-                        }
-                        Set<String> bannedStrsSet = new HashSet<>();
-                        for (char c : bannedStrs.toCharArray()){
-                            bannedStrsSet.add(String.valueOf(c));
-                        }
-                        allStrsSet.removeAll(bannedStrsSet);
-                        bannedStrMap.put(name, allStrsSet);
+                        bannedCharsMap.put(name, BannedChars.allow(e.element("allow").getText().trim()));
                     }
                 }
             }
@@ -173,6 +162,10 @@ public class PreParse {
         return cfg;
     }
 
+    public Attributes getAttributes() {
+        return attributes;
+    }
+
     public Translator getTranslator() {
         return translator;
     }
@@ -185,7 +178,16 @@ public class PreParse {
         return terminatorsNFA;
     }
 
-    public Map<String, String> getBannedStrs() {
-        return null;
+    public Map<String, BannedChars> getBannedChars() {
+        return bannedCharsMap;
+    }
+
+    /* 产生式中直接出现的平凡终结符，它们的正则表达式就是名字本身 */
+    public Set<String> getKeywords() {
+        return keywords;
+    }
+
+    public Set<String> getComments() {
+        return comments;
     }
 }
@@ -11,7 +11,8 @@ public class StringGenerator {
     }
 
 
-    public static String getNextCode() {
+    /* 多个语言定义可能在不同线程中同时构建自动机 */
+    public static synchronized String getNextCode() {
         String result = serialCode.toString();
         boolean end = false;
         for (int i = 0; i < serialCode.length(); ++i) {
@@ -0,0 +1,99 @@
+package lexer;
+
+import org.junit.Test;
+import parser.CFG;
+import symbol.TokenBuffer;
+import util.TestLanguages;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompiledDFATest {
+
+    /*
+        if、int、while、a 只被 id 接受；abc、bad 同时被 hex 和 id 接受；Int 被 Type 接受；== 没有终结符能接受，只能放入DFA。
+        关键字在产生式中出现，优先级高于 terminators 中的终结符
+     */
+    private static final String KEYWORDS_XML = "<pldl><cfgproductions>" +
+            "<item><production>Program -> L</production></item>" +
+            "<item><production>L -> L W</production></item>" +
+            "<item><production>L -> W</production></item>" +
+            "<item><production>W -> if</production></item>" +
+            "<item><production>W -> int</production></item>" +
+            "<item><production>W -> while</production></item>" +
+            "<item><production>W -> a</production></item>" +
+            "<item><production>W -> abc</production></item>" +
+            "<item><production>W -> bad</production></item>" +
+            "<item><production>W -> Int</production></item>" +
+            "<item><production>W -> ==</production></item>" +
+            "<item><production>W -> hex</production></item>" +
+            "<item><production>W -> id</production></item>" +
+            "<item><production>W -> Type</production></item>" +
+            "<item><production>W -> num</production></item>" +
+            "</cfgproductions><terminators>" +
+            "<item><name>hex</name><regex>[a-f][a-f]*</regex></item>" +
+            "<item><name>id</name><regex>[_a-z][_a-z0-9]*</regex></item>" +
+            "<item><name>Type</name><regex>[A-Z][a-zA-Z0-9]*</regex></item>" +
+            "<item><name>num</name><regex>[0-9][0-9]*</regex></item>" +
+            "</terminators></pldl>";
+
+    private static final String CODE =
+            //关键字本身
+            "if int while a abc bad Int == " +
+            //与关键字有相同前缀的标识符，以及关键字的前缀
+            "i in whil ab ba I In iff int_ inta while1 abd bade Inte " +
+            //比所有关键字都长的词
+            "whilewhilewhile interface abcdefabcdef badcafe Integer iffy ====== " +
+            //关键字之间没有空白
+            "if==int a1 abc9 Int0 9if";
+
+    private static Lexer load(boolean keywordTable) throws Exception {
+        return TestLanguages.load(KEYWORDS_XML.getBytes(StandardCharsets.UTF_8), CFG.LR1, keywordTable).getLexer();
+    }
+
+    private static List<String> describe(TokenBuffer buffer) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); ++i) {
+            result.add(buffer.getTerminator(i).getName() + ":" + buffer.getLexeme(i));
+        }
+        return result;
+    }
+
+    @Test
+    public void keywordTableMatchesDFA() throws Exception {
+        Lexer hashed = load(true), plain = load(false);
+        assertTrue(hashed.getCompiledDFA().getStateCount() < plain.getCompiledDFA().getStateCount());
+
+        List<String> expected = describe(plain.analysis(CODE, TestLanguages.EMPTY_CHARS));
+        assertEquals(expected, describe(hashed.analysis(CODE, TestLanguages.EMPTY_CHARS)));
+        TokenBuffer buffer = new TokenBuffer();
+        TokenStreamTest.readLexemes(hashed.getTokenStream(new StringReader(CODE), TestLanguages.EMPTY_CHARS), buffer);
+        assertEquals(expected, describe(buffer));
+
+        for (String token : new String[]{"if:if", "int:int", "while:while", "a:a", "abc:abc", "bad:bad", "Int:Int", "==:==",
+                "id:i", "id:in", "id:whil", "hex:ab", "hex:ba", "Type:I", "Type:In", "id:iff", "id:int_", "id:inta", "id:while1",
+                "hex:abd", "hex:bade", "Type:Inte", "id:whilewhilewhile", "id:interface", "hex:abcdefabcdef", "hex:badcafe",
+                "Type:Integer", "id:iffy", "id:a1", "id:abc9", "Type:Int0", "num:9"}) {
+            assertTrue(token, expected.contains(token));
+        }
+        assertEquals(Arrays.asList("==:==", "==:==", "==:==", "if:if", "==:==", "int:int"),
+                expected.subList(expected.indexOf("id:iffy") + 1, expected.indexOf("id:a1")));
+    }
+
+    @Test
+    public void sampleKeywordsMatchDFA() throws Exception {
+        for (String sample : new String[]{"calc", "expr", "c"}) {
+            byte[] xml = TestLanguages.readAllBytes(TestLanguages.getSampleFile(sample));
+            Lexer hashed = TestLanguages.load(xml, CFG.LR1, true).getLexer();
+            Lexer plain = TestLanguages.load(xml, CFG.LR1, false).getLexer();
+            String code = TestLanguages.readSampleCode(sample);
+            assertEquals(sample, describe(plain.analysis(code, TestLanguages.EMPTY_CHARS)),
+                    describe(hashed.analysis(code, TestLanguages.EMPTY_CHARS)));
+        }
+    }
+}
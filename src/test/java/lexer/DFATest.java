@@ -0,0 +1,116 @@
+package lexer;
+
+import org.junit.Test;
+import util.PreParse;
+import util.TestLanguages;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DFATest {
+
+    /* 与 Lexer 相同的方式构建DFA，minimize 为false时不做化简 */
+    private static DFA build(List<Map.Entry<String, NFA>> regexes, Map<String, BannedChars> bannedChars, boolean minimize) {
+        Map<String, NFA> regexesNFAs = new HashMap<>();
+        Map<String, Integer> regexesOrders = new HashMap<>();
+        for (int i = 0; i < regexes.size(); ++i) {
+            regexesOrders.put(regexes.get(i).getKey(), i);
+            regexesNFAs.put(regexes.get(i).getKey(), regexes.get(i).getValue());
+        }
+        DFA dfa = NFA.getJoinedNFA(regexesNFAs).toDFA(regexesOrders, bannedChars);
+        if (minimize) {
+            dfa.simplify();
+        }
+        return dfa;
+    }
+
+    private static int countStates(DFA dfa) {
+        Set<DFANode> visited = new HashSet<>();
+        Deque<DFANode> willVisit = new ArrayDeque<>();
+        visited.add(dfa.getRoot());
+        willVisit.add(dfa.getRoot());
+        while (!willVisit.isEmpty()) {
+            for (DFANode next : willVisit.poll().getStateTransformTable().values()) {
+                if (visited.add(next)) {
+                    willVisit.add(next);
+                }
+            }
+        }
+        return visited.size();
+    }
+
+    private static void assertSameLanguage(DFA expected, DFA actual, Collection<String> inputs) {
+        for (String input : inputs) {
+            assertEquals(input, expected.analysis(input), actual.analysis(input));
+        }
+    }
+
+    /* 代码中每个位置开始的后缀，以及由代码中出现的字符组成的随机串 */
+    private static List<String> getInputs(String code, int randomCount) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < code.length(); ++i) {
+            result.add(code.substring(i, Math.min(code.length(), i + 40)));
+        }
+        Random random = new Random(20261018);
+        for (int i = 0; i < randomCount; ++i) {
+            StringBuilder input = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                input.append(code.charAt(random.nextInt(code.length())));
+            }
+            result.add(input.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void minimizedSampleDFAsAcceptTheSameTokens() throws Exception {
+        for (String sample : new String[]{"calc", "expr", "c"}) {
+            PreParse preParse = TestLanguages.preParse(TestLanguages.readAllBytes(TestLanguages.getSampleFile(sample)));
+            DFA raw = build(preParse.getTerminatorRegexes(), preParse.getBannedChars(), false);
+            DFA minimized = build(preParse.getTerminatorRegexes(), preParse.getBannedChars(), true);
+            assertTrue(sample, countStates(minimized) <= countStates(raw));
+            assertSameLanguage(raw, minimized, getInputs(TestLanguages.readSampleCode(sample), 5000));
+        }
+    }
+
+    @Test
+    public void acceptingStatesOfDifferentTokensAreNotMerged() throws Exception {
+        //x、y 的终态之后的转移完全相同，只有接受的终结符不同；if 同时被 id 接受，优先级高于 id
+        List<Map.Entry<String, NFA>> regexes = new ArrayList<>();
+        regexes.add(new AbstractMap.SimpleEntry<>("if", NFA.fastNFA("if")));
+        regexes.add(new AbstractMap.SimpleEntry<>("x", new SimpleREApply("a[0-9]*").getNFA()));
+        regexes.add(new AbstractMap.SimpleEntry<>("y", new SimpleREApply("b[0-9]*").getNFA()));
+        regexes.add(new AbstractMap.SimpleEntry<>("id", new SimpleREApply("[a-z][a-z]*").getNFA()));
+        Map<String, BannedChars> bannedChars = new HashMap<>();
+        DFA raw = build(regexes, bannedChars, false);
+        DFA minimized = build(regexes, bannedChars, true);
+        assertTrue(countStates(minimized) < countStates(raw));
+
+        assertEquals(new AbstractMap.SimpleEntry<>("x", 3), minimized.analysis("a12"));
+        assertEquals(new AbstractMap.SimpleEntry<>("y", 3), minimized.analysis("b12"));
+        assertEquals(new AbstractMap.SimpleEntry<>("x", 1), minimized.analysis("a"));
+        assertEquals(new AbstractMap.SimpleEntry<>("y", 1), minimized.analysis("b"));
+        assertEquals(new AbstractMap.SimpleEntry<>("if", 2), minimized.analysis("if"));
+        assertEquals(new AbstractMap.SimpleEntry<>("id", 3), minimized.analysis("iff"));
+        assertEquals(new AbstractMap.SimpleEntry<>("id", 2), minimized.analysis("ab"));
+        assertSameLanguage(raw, minimized, getInputs("ifab0123xyz", 5000));
+    }
+
+    @Test
+    public void acceptingStatesWithDifferentBansAreNotMerged() throws Exception {
+        //两个终结符的DFA形状相同，只有 ban 不同
+        List<Map.Entry<String, NFA>> regexes = new ArrayList<>();
+        regexes.add(new AbstractMap.SimpleEntry<>("x", new SimpleREApply("a[0-9]*").getNFA()));
+        regexes.add(new AbstractMap.SimpleEntry<>("y", new SimpleREApply("b[0-9]*").getNFA()));
+        regexes.add(new AbstractMap.SimpleEntry<>("z", new SimpleREApply("[a-c]").getNFA()));
+        Map<String, BannedChars> bannedChars = new HashMap<>();
+        bannedChars.put("x", BannedChars.ban("c"));
+        DFA raw = build(regexes, bannedChars, false);
+        DFA minimized = build(regexes, bannedChars, true);
+        assertEquals(new AbstractMap.SimpleEntry<>("z", 1), minimized.analysis("ac"));
+        assertEquals(new AbstractMap.SimpleEntry<>("y", 1), minimized.analysis("bc"));
+        assertSameLanguage(raw, minimized, getInputs("abc0123", 5000));
+    }
+}
@@ -0,0 +1,129 @@
+package lexer;
+
+import exception.PLDLAnalysisException;
+import org.junit.Test;
+import parser.CFG;
+import symbol.TokenBuffer;
+import util.CompiledLanguage;
+import util.TestLanguages;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LexerTest {
+
+    //注释紧挨着关键字、标识符和运算符，换行注释和块注释中有换行
+    private static final String COMMENTED_CODE =
+            "int main() {\n" +
+            "    int a = 1;/* block */while (a < 10) {\n" +
+            "        a = a + 1; // line\n" +
+            "    }/*\n  two lines */return a;//tail\n" +
+            "}\n";
+
+    /* 注释替换为等长的空白，换行保留 */
+    private static String blankComments(String code) {
+        StringBuilder result = new StringBuilder(code);
+        int i = 0;
+        while (i < result.length()) {
+            int end = -1;
+            if (result.indexOf("/*", i) == i) {
+                end = result.indexOf("*/", i) + 2;
+            }
+            else if (result.indexOf("//", i) == i) {
+                end = result.indexOf("\n", i) + 1;
+            }
+            if (end < 0) {
+                ++i;
+                continue;
+            }
+            for (; i < end; ++i) {
+                if (result.charAt(i) != '\n') {
+                    result.setCharAt(i, ' ');
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private static List<String> describe(TokenBuffer buffer) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); ++i) {
+            result.add(buffer.getTerminator(i).getName() + ":" + buffer.getLexeme(i) + "@" + buffer.getStart(i));
+        }
+        return result;
+    }
+
+    @Test
+    public void commentsDoNotShiftTokens() throws Exception {
+        Lexer lexer = TestLanguages.loadSample("c", CFG.LR1).getLexer();
+        String blanked = blankComments(COMMENTED_CODE);
+        assertEquals(COMMENTED_CODE.length(), blanked.length());
+        List<String> expected = describe(lexer.analysis(blanked, TestLanguages.EMPTY_CHARS));
+        List<String> actual = describe(lexer.analysis(COMMENTED_CODE, TestLanguages.EMPTY_CHARS));
+        assertEquals(expected, actual);
+        int whileIndex = COMMENTED_CODE.indexOf("while");
+        int returnIndex = COMMENTED_CODE.indexOf("return");
+        assertTrue(actual.contains("while:while@" + whileIndex));
+        assertTrue(actual.contains("return:return@" + returnIndex));
+        for (String token : actual) {
+            assertFalse(token, token.startsWith("comment"));
+        }
+    }
+
+    @Test
+    public void streamedTokensMatchWithoutComments() throws Exception {
+        CompiledLanguage language = TestLanguages.loadSample("c", CFG.LR1);
+        String blanked = blankComments(COMMENTED_CODE);
+        TokenBuffer streamed = new TokenBuffer();
+        TokenStreamTest.readLexemes(language.getLexer().getTokenStream(new StringReader(COMMENTED_CODE), TestLanguages.EMPTY_CHARS), streamed);
+        TokenBuffer expected = language.getLexer().analysis(blanked, TestLanguages.EMPTY_CHARS);
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.getKind(i), streamed.getKind(i));
+            assertEquals(expected.getLexeme(i), streamed.getLexeme(i));
+        }
+        assertEquals(TestLanguages.compile(language, blanked), TestLanguages.compile(language, COMMENTED_CODE));
+    }
+
+    @Test
+    public void commentBeforeKeyword() throws Exception {
+        Lexer lexer = TestLanguages.loadSample("c", CFG.LR1).getLexer();
+        for (String code : new String[]{"/*c*/while", "//c\nwhile", "/**/while/**/"}) {
+            List<String> actual = describe(lexer.analysis(code, TestLanguages.EMPTY_CHARS));
+            assertEquals(code, Arrays.asList("while:while@" + code.indexOf("while")), actual);
+            TokenBuffer streamed = new TokenBuffer();
+            TokenStreamTest.readLexemes(lexer.getTokenStream(new StringReader(code), TestLanguages.EMPTY_CHARS, 2), streamed);
+            assertEquals(code, 1, streamed.size());
+            assertEquals(code, "while", streamed.getTerminator(0).getName());
+        }
+    }
+
+    @Test
+    public void errorPositionCountsComments() throws Exception {
+        Lexer lexer = TestLanguages.loadSample("c", CFG.LR1).getLexer();
+        String code = "int a; /* one\n two */ // three\n  @";
+        String expected = null;
+        try {
+            lexer.analysis(blankComments(code), TestLanguages.EMPTY_CHARS);
+            fail();
+        } catch (PLDLAnalysisException e) {
+            expected = e.getMessage();
+        }
+        try {
+            lexer.analysis(code, TestLanguages.EMPTY_CHARS);
+            fail();
+        } catch (PLDLAnalysisException e) {
+            assertEquals(expected, e.getMessage());
+        }
+        try {
+            TokenStreamTest.readLexemes(lexer.getTokenStream(new StringReader(code), TestLanguages.EMPTY_CHARS), new TokenBuffer());
+            fail();
+        } catch (PLDLAnalysisException e) {
+            assertEquals(expected, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package lexer;
+
+import org.junit.Test;
+import parser.CFG;
+import symbol.TokenBuffer;
+import util.CompiledLanguage;
+import util.TestLanguages;
+
+import exception.PLDLAnalysisException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TokenStreamTest {
+
+    static List<String> readLexemes(TokenStream stream, TokenBuffer buffer) throws Exception {
+        while (stream.fill(buffer)) {
+        }
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); ++i) {
+            result.add(buffer.getLexeme(i));
+        }
+        return result;
+    }
+
+    /* 每次最多读出 chunk 个字符，让最长匹配更容易跨过缓冲区末尾 */
+    private static Reader trickle(String code, final int chunk) {
+        return new StringReader(code) {
+            @Override
+            public int read(char[] chars, int offset, int length) throws IOException {
+                return super.read(chars, offset, Math.min(length, chunk));
+            }
+        };
+    }
+
+    private static List<String> describe(TokenBuffer buffer) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); ++i) {
+            result.add(buffer.getTerminator(i).getName() + ":" + buffer.getLexeme(i));
+        }
+        return result;
+    }
+
+    private static List<String> stream(Lexer lexer, String code, int bufferSize, int chunk) throws Exception {
+        TokenBuffer buffer = new TokenBuffer();
+        readLexemes(lexer.getTokenStream(trickle(code, chunk), TestLanguages.EMPTY_CHARS, bufferSize), buffer);
+        return describe(buffer);
+    }
+
+    private static void assertSameTokens(Lexer lexer, String code) throws Exception {
+        List<String> expected = describe(lexer.analysis(code, TestLanguages.EMPTY_CHARS));
+        for (int bufferSize : new int[]{1, 2, 3, 5, 8, 64}) {
+            for (int chunk : new int[]{1, 3, 1 << 20}) {
+                assertEquals(code + " " + bufferSize + " " + chunk, expected, stream(lexer, code, bufferSize, chunk));
+            }
+        }
+    }
+
+    @Test
+    public void tokensAcrossWindowBoundary() throws Exception {
+        Lexer lexer = TestLanguages.loadSample("c", CFG.LR1).getLexer();
+        assertSameTokens(lexer, TestLanguages.readSampleCode("c"));
+        //标识符、数字和注释都比缓冲区长，识别时需要多次读入
+        assertSameTokens(lexer, "int abcdefghijklmnop = 1234567890; /* a long comment ** */ while whilee");
+    }
+
+    @Test
+    public void sourceEndsMidToken() throws Exception {
+        Lexer lexer = TestLanguages.loadSample("c", CFG.LR1).getLexer();
+        //没有结束的注释回退到最后一次接受的位置，按较短的词法单元识别
+        assertSameTokens(lexer, "a = b /* not closed");
+        assertSameTokens(lexer, "a = b // no newline");
+        assertSameTokens(lexer, "a = b /");
+        assertSameTokens(lexer, "whil");
+        assertSameTokens(lexer, "while");
+        assertSameTokens(lexer, "x12");
+        List<String> tokens = stream(lexer, "a /* b", 2, 1);
+        assertEquals("var:b", tokens.get(tokens.size() - 1));
+    }
+
+    @Test
+    public void errorPositionAcrossWindowBoundary() throws Exception {
+        Lexer lexer = TestLanguages.loadSample("c", CFG.LR1).getLexer();
+        String code = "int abc;\n  abcdef @";
+        String expected = null;
+        try {
+            lexer.analysis(code, TestLanguages.EMPTY_CHARS);
+            fail();
+        } catch (PLDLAnalysisException e) {
+            expected = e.getMessage();
+        }
+        for (int bufferSize : new int[]{1, 3, 64}) {
+            try {
+                stream(lexer, code, bufferSize, 1);
+                fail();
+            } catch (PLDLAnalysisException e) {
+                assertEquals(expected, e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void onlyKeptLexemesAreCopied() throws Exception {
+        CompiledLanguage language = TestLanguages.loadSample("calc", CFG.LR1);
+        StringBuilder code = new StringBuilder("1");
+        for (int i = 0; i < 1000; ++i) {
+            code.append("   /* comment ").append(i).append(" */\n+ 23");
+        }
+        TokenBuffer buffer = new TokenBuffer();
+        TokenStream stream = language.getLexer().getTokenStream(new StringReader(code.toString()), TestLanguages.EMPTY_CHARS);
+        List<String> lexemes = readLexemes(stream, buffer);
+        assertEquals(2001, lexemes.size());
+        StringBuilder expected = new StringBuilder("1");
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals("+", lexemes.get(2 * i + 1));
+            assertEquals("23", lexemes.get(2 * i + 2));
+            expected.append("+23");
+        }
+        assertEquals(expected.toString(), buffer.getSource().toString());
+    }
+}
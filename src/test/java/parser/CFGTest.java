@@ -0,0 +1,87 @@
+package parser;
+
+import exception.PLDLAnalysisException;
+import org.junit.Test;
+import util.CompiledLanguage;
+import util.TestLanguages;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CFGTest {
+
+    //LR(1)文法，但 A -> c 和 B -> c 所在的两个项目集同心，合并后在展望符 d、e 下产生归约-归约冲突
+    private static final String NOT_LALR_XML = "<pldl><cfgproductions>" +
+            "<item><production>Program -> a A d</production>" +
+            "<after-generations><item>gen(ad, _, _, _)</item></after-generations></item>" +
+            "<item><production>Program -> b B d</production>" +
+            "<after-generations><item>gen(bd, _, _, _)</item></after-generations></item>" +
+            "<item><production>Program -> a B e</production>" +
+            "<after-generations><item>gen(ae, _, _, _)</item></after-generations></item>" +
+            "<item><production>Program -> b A e</production>" +
+            "<after-generations><item>gen(be, _, _, _)</item></after-generations></item>" +
+            "<item><production>A -> c</production></item>" +
+            "<item><production>B -> c</production></item>" +
+            "</cfgproductions><terminators>" +
+            "<item><name>a</name><regex>a</regex></item>" +
+            "<item><name>b</name><regex>b</regex></item>" +
+            "<item><name>c</name><regex>c</regex></item>" +
+            "<item><name>d</name><regex>d</regex></item>" +
+            "<item><name>e</name><regex>e</regex></item>" +
+            "</terminators></pldl>";
+
+    private static boolean hasMergedConflict(List<String> warnings) {
+        for (String warning : warnings) {
+            if (warning.startsWith("LALR(1)合并同心项目集后") && warning.contains("归约-归约冲突")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void lalrAndLr1CompileSamplesTheSame() throws Exception {
+        for (String sample : new String[]{"calc", "expr", "c"}) {
+            String code = TestLanguages.readSampleCode(sample);
+            List<String> lr1 = TestLanguages.compile(TestLanguages.loadSample(sample, CFG.LR1), code);
+            List<String> lalr1 = TestLanguages.compile(TestLanguages.loadSample(sample, CFG.LALR1), code);
+            assertFalse(sample, lr1.isEmpty());
+            assertEquals(sample, lr1, lalr1);
+        }
+    }
+
+    @Test
+    public void lalrTableHasNoMoreStates() throws Exception {
+        for (String sample : new String[]{"calc", "expr", "c"}) {
+            TransformTable lr1 = TestLanguages.loadSample(sample, CFG.LR1).getTable();
+            TransformTable lalr1 = TestLanguages.loadSample(sample, CFG.LALR1).getTable();
+            assertTrue(sample, lalr1.getTableMap().size() <= lr1.getTableMap().size());
+        }
+        //C语言的文法中有大量同心项目集
+        assertTrue(TestLanguages.loadSample("c", CFG.LALR1).getTable().getTableMap().size() <
+                TestLanguages.loadSample("c", CFG.LR1).getTable().getTableMap().size());
+    }
+
+    @Test
+    public void mergedCoreConflictIsReported() throws Exception {
+        CompiledLanguage lr1 = TestLanguages.load(NOT_LALR_XML, CFG.LR1);
+        assertFalse(hasMergedConflict(lr1.getWarnings()));
+        for (String code : new String[]{"a c d", "b c d", "a c e", "b c e"}) {
+            assertEquals(Arrays.asList(code.charAt(0) + "" + code.charAt(4) + ",_,_,_"), TestLanguages.compile(lr1, code));
+        }
+
+        CompiledLanguage lalr1 = TestLanguages.load(NOT_LALR_XML, CFG.LALR1);
+        assertTrue(hasMergedConflict(lalr1.getWarnings()));
+        //警告只记录在产生它的编译产物中
+        assertFalse(hasMergedConflict(lr1.getWarnings()));
+        //冲突时使用序号较小的 A -> c 归约，a B e 无法再分析
+        assertEquals(Arrays.asList("ad,_,_,_"), TestLanguages.compile(lalr1, "a c d"));
+        try {
+            TestLanguages.compile(lalr1, "a c e");
+            fail();
+        } catch (PLDLAnalysisException e) {
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package parser;
+
+import exception.PLDLAnalysisException;
+import org.junit.Test;
+import util.CompiledLanguage;
+import util.TestLanguages;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TransformTableTest {
+
+    //开始符号左递归，中间归约到 Program 时不能当作分析结束
+    private static final String LEFT_RECURSIVE_XML = "<pldl><cfgproductions>" +
+            "<item><production>Program -> Program E ;</production>" +
+            "<movements><item>go($1)</item><item>go($2)</item></movements>" +
+            "<after-generations><item>gen(out, $2(val), _, _)</item></after-generations></item>" +
+            "<item><production>Program -> E ;</production>" +
+            "<movements><item>go($1)</item></movements>" +
+            "<after-generations><item>gen(out, $1(val), _, _)</item></after-generations></item>" +
+            "<item><production>E -> num</production>" +
+            "<movements><item>$$(val) = $1(val)</item></movements></item>" +
+            "</cfgproductions><terminators>" +
+            "<item><name>num</name><regex>[1-9][0-9]*|0</regex></item>" +
+            "</terminators></pldl>";
+
+    @Test
+    public void leftRecursiveStartSymbolIsNotAcceptedEarly() throws Exception {
+        for (int tableMode : new int[]{CFG.LR1, CFG.LALR1}) {
+            CompiledLanguage language = TestLanguages.load(LEFT_RECURSIVE_XML, tableMode);
+            assertEquals(Arrays.asList("out,1,_,_", "out,2,_,_", "out,3,_,_"),
+                    TestLanguages.compile(language, "1; 2; 3;"));
+            assertEquals(Arrays.asList("out,7,_,_"), TestLanguages.compile(language, "7;"));
+        }
+    }
+
+    @Test(expected = PLDLAnalysisException.class)
+    public void incompleteProgramIsRejected() throws Exception {
+        CompiledLanguage language = TestLanguages.load(LEFT_RECURSIVE_XML, CFG.LR1);
+        TestLanguages.compile(language, "1; 2");
+    }
+}
@@ -0,0 +1,41 @@
+package symbol;
+
+import org.junit.Test;
+import parser.CFG;
+import util.CompiledLanguage;
+import util.TestLanguages;
+
+import static org.junit.Assert.*;
+
+public class AttributesTest {
+
+    @Test
+    public void languagesKeepTheirOwnSlots() throws Exception {
+        CompiledLanguage c = TestLanguages.loadSample("c", CFG.LR1);
+        CompiledLanguage calc = TestLanguages.loadSample("calc", CFG.LR1);
+        assertNotSame(c.getAttributes(), calc.getAttributes());
+        assertEquals(Attributes.VAL, c.getAttributes().findSlot("val"));
+        assertEquals(Attributes.VAL, calc.getAttributes().findSlot("val"));
+        //槽位与属性名一一对应
+        for (int slot = 0; slot < c.getAttributes().size(); ++slot) {
+            String name = c.getAttributes().getName(slot);
+            assertEquals(slot, c.getAttributes().findSlot(name));
+        }
+        assertTrue(c.getAttributes().size() > calc.getAttributes().size());
+        int calcSize = calc.getAttributes().size();
+        TestLanguages.compile(c, TestLanguages.readSampleCode("c"));
+        TestLanguages.compile(calc, "1 + 2 * 3");
+        assertEquals(calcSize, calc.getAttributes().size());
+    }
+
+    @Test
+    public void symbolDoesNotChangeSharedRegistry() {
+        Attributes attributes = new Attributes();
+        Terminator terminator = new Terminator(null);
+        terminator.setAttributes(attributes);
+        terminator.addProperty("type", "int");
+        assertEquals(-1, attributes.findSlot("type"));
+        assertEquals("int", terminator.getProperties().get("type"));
+        assertEquals(1, attributes.size());
+    }
+}
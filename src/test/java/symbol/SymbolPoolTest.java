@@ -0,0 +1,40 @@
+package symbol;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class SymbolPoolTest {
+
+    private static SymbolPool pool(String... terminators) throws Exception {
+        SymbolPool pool = new SymbolPool();
+        pool.initUnterminatorString(new HashSet<>(Arrays.asList("Program", "E")));
+        pool.initTerminatorString(new HashSet<>(Arrays.asList(terminators)));
+        return pool;
+    }
+
+    @Test
+    public void sameNameFromDifferentPoolsIsEqual() throws Exception {
+        //两个符号池中 num 的编号不同
+        SymbolPool first = pool("num"), second = pool("+", "-", "num");
+        AbstractTerminator num1 = first.getTerminator("num"), num2 = second.getTerminator("num");
+        assertNotSame(num1, num2);
+        assertEquals(num1, num2);
+        assertEquals(num1.hashCode(), num2.hashCode());
+        assertEquals(first.getUnterminator("E"), second.getUnterminator("E"));
+        assertEquals(num1, new AbstractTerminator("num"));
+        assertSame(num1, first.getCanonicalSymbol(num2));
+    }
+
+    @Test
+    public void differentSymbolsAreNotEqual() throws Exception {
+        SymbolPool pool = pool("num", "E2");
+        assertNotEquals(pool.getTerminator("num"), pool.getTerminator("E2"));
+        assertNotEquals(pool.getUnterminator("E"), new AbstractTerminator("E"));
+        assertFalse(pool.getTerminator("num").equals("num"));
+        assertFalse(pool.getTerminator("num").equals(null));
+    }
+}
@@ -0,0 +1,134 @@
+package util;
+
+import app.ConsoleApplication;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import parser.CFG;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LanguageArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeArchive(String sample, int tableMode, boolean keywordTable) throws Exception {
+        byte[] xml = TestLanguages.readAllBytes(TestLanguages.getSampleFile(sample));
+        byte[] sourceHash = LanguageArchive.getSourceHash(xml, tableMode, keywordTable);
+        File file = LanguageArchive.getArchiveFile(folder.getRoot(), sourceHash);
+        LanguageArchive.write(TestLanguages.load(xml, tableMode, keywordTable), sourceHash, file);
+        return file;
+    }
+
+    private static int readVersion(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(4);
+            return raf.readInt();
+        }
+    }
+
+    private static void writeVersion(File file, int version) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeInt(version);
+        }
+    }
+
+    @Test
+    public void samplesRoundTrip() throws Exception {
+        for (String sample : new String[]{"calc", "expr", "c"}) {
+            for (int tableMode : new int[]{CFG.LR1, CFG.LALR1}) {
+                for (boolean keywordTable : new boolean[]{true, false}) {
+                    byte[] xml = TestLanguages.readAllBytes(TestLanguages.getSampleFile(sample));
+                    byte[] sourceHash = LanguageArchive.getSourceHash(xml, tableMode, keywordTable);
+                    File file = writeArchive(sample, tableMode, keywordTable);
+                    CompiledLanguage loaded = LanguageArchive.read(file, sourceHash);
+                    assertNotNull(sample, loaded);
+                    assertEquals(tableMode, loaded.getCFG().getTableMode());
+
+                    String code = TestLanguages.readSampleCode(sample);
+                    List<String> expected = TestLanguages.compile(TestLanguages.load(xml, tableMode, keywordTable), code);
+                    assertFalse(sample, expected.isEmpty());
+                    assertEquals(sample, expected, TestLanguages.compile(loaded, code));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void staleVersionIsRejected() throws Exception {
+        byte[] xml = TestLanguages.readAllBytes(TestLanguages.getSampleFile("calc"));
+        File file = writeArchive("calc", CFG.LR1, true);
+        writeVersion(file, LanguageArchive.VERSION - 1);
+        assertNull(LanguageArchive.read(file, LanguageArchive.getSourceHash(xml, CFG.LR1, true)));
+    }
+
+    @Test
+    public void mismatchedHashIsRejected() throws Exception {
+        byte[] xml = TestLanguages.readAllBytes(TestLanguages.getSampleFile("calc"));
+        File file = writeArchive("calc", CFG.LR1, true);
+        assertNull(LanguageArchive.read(file, LanguageArchive.getSourceHash(xml, CFG.LALR1, true)));
+        assertNull(LanguageArchive.read(file, LanguageArchive.getSourceHash(xml, CFG.LR1, false)));
+        byte[] changed = (new String(xml, StandardCharsets.UTF_8) + "\n").getBytes(StandardCharsets.UTF_8);
+        assertNull(LanguageArchive.read(file, LanguageArchive.getSourceHash(changed, CFG.LR1, true)));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedArchiveIsRejected() throws Exception {
+        byte[] xml = TestLanguages.readAllBytes(TestLanguages.getSampleFile("calc"));
+        File file = writeArchive("calc", CFG.LR1, true);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        LanguageArchive.read(file, LanguageArchive.getSourceHash(xml, CFG.LR1, true));
+    }
+
+    @Test
+    public void staleArchiveIsRebuilt() throws Exception {
+        byte[] xml = TestLanguages.readAllBytes(TestLanguages.getSampleFile("calc"));
+        File file = LanguageArchive.getArchiveFile(folder.getRoot(), LanguageArchive.getSourceHash(xml, CFG.LR1, true));
+        String code = TestLanguages.readSampleCode("calc");
+        String cacheDir = System.getProperty("lyron.cache");
+        System.setProperty("lyron.cache", folder.getRoot().getPath());
+        try {
+            ConsoleApplication application = new ConsoleApplication();
+            application.LLBegin(new ByteArrayInputStream(xml));
+            assertTrue(file.isFile());
+            application.LLParse(new ByteArrayInputStream(code.getBytes(StandardCharsets.UTF_8)));
+            String expected = application.getResults().toString();
+
+            //旧版本的编译产物被重新解析XML后覆盖
+            writeVersion(file, LanguageArchive.VERSION - 1);
+            application = new ConsoleApplication();
+            application.LLBegin(new ByteArrayInputStream(xml));
+            assertEquals(LanguageArchive.VERSION, readVersion(file));
+            application.LLParse(new ByteArrayInputStream(code.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(expected, application.getResults().toString());
+
+            //不完整的编译产物同样重新生成
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(raf.length() / 2);
+            }
+            application = new ConsoleApplication();
+            application.LLBegin(new ByteArrayInputStream(xml));
+            assertNotNull(LanguageArchive.read(file, LanguageArchive.getSourceHash(xml, CFG.LR1, true)));
+            application.LLParse(new ByteArrayInputStream(code.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(expected, application.getResults().toString());
+        } finally {
+            if (cacheDir == null) {
+                System.clearProperty("lyron.cache");
+            }
+            else {
+                System.setProperty("lyron.cache", cacheDir);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package util;
+
+import generator.ResultTuple4;
+import generator.Tuple4;
+import lexer.Lexer;
+import parser.CFG;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/* 测试用的语言定义：从XML字符串或 sample 目录构建编译产物，编译代码得到四元式 */
+public class TestLanguages {
+
+    public static final Set<Character> EMPTY_CHARS = new HashSet<>(Arrays.asList(' ', '\t', '\n', '\r', '\f'));
+
+    public static File getSampleFile(String language) {
+        return new File("sample/" + language + "/xml/" + language + ".xml");
+    }
+
+    public static File getSampleCode(String language) {
+        File[] files = new File("sample/" + language + "/test").listFiles();
+        return files[0];
+    }
+
+    public static String readSampleCode(String language) throws IOException {
+        return new String(readAllBytes(getSampleCode(language)), StandardCharsets.UTF_8);
+    }
+
+    public static byte[] readAllBytes(File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int readin;
+            while ((readin = inputStream.read(buffer)) > 0) {
+                result.write(buffer, 0, readin);
+            }
+            return result.toByteArray();
+        }
+    }
+
+    public static PreParse preParse(byte[] xml) throws Exception {
+        return new PreParse(new ByteArrayInputStream(xml), "Program");
+    }
+
+    public static CompiledLanguage load(byte[] xml, int tableMode, boolean keywordTable) throws Exception {
+        PreParse preParse = preParse(xml);
+        Lexer lexer = new Lexer(preParse.getTerminatorRegexes(), preParse.getBannedChars(),
+                keywordTable ? preParse.getKeywords() : Collections.<String>emptySet(), preParse.getComments());
+        CFG cfg = preParse.getCFG();
+        cfg.setTableMode(tableMode);
+        return new CompiledLanguage(lexer, cfg, cfg.getTable(), preParse.getTranslator(), preParse.getGenerator(), preParse.getAttributes());
+    }
+
+    public static CompiledLanguage load(String xml, int tableMode) throws Exception {
+        return load(xml.getBytes(StandardCharsets.UTF_8), tableMode, true);
+    }
+
+    public static CompiledLanguage loadSample(String language, int tableMode) throws Exception {
+        return load(readAllBytes(getSampleFile(language)), tableMode, true);
+    }
+
+    public static List<String> compile(CompiledLanguage language, String code) throws Exception {
+        ResultTuple4 result = language.compile(new StringReader(code), EMPTY_CHARS);
+        List<String> tuple4s = new ArrayList<>();
+        for (Tuple4 tuple4 : result.getTuple4s()) {
+            tuple4s.add(tuple4.toString());
+        }
+        return tuple4s;
+    }
+}